@@ -0,0 +1,112 @@
+package org.attornatus.pessoas.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// mede o tempo entre o início do processo e a primeira resposta bem-sucedida da api em cada modo de inicialização:
+// o jar executável, o jar comum com as dependências à parte, com aot, com class data sharing e com os dois, além da
+// imagem nativa, se ela tiver sido gerada. Os artefatos vêm de mvn -P inicializacao package, e os modos cujos
+// artefatos não existem são ignorados. As repetições podem ser ajustadas com -Dbenchmark.repeticoes
+public class ComparativoDeInicializacao {
+    private static final int REPETICOES = Integer.getInteger("benchmark.repeticoes", 5);
+    private static final Duration LIMITE = Duration.ofSeconds(Integer.getInteger("benchmark.limite", 120));
+    private static final Path ALVO = Path.of("target", "inicializacao");
+    private static final String JAVA = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    private static final String PRINCIPAL = "org.attornatus.pessoas.PessoasApplication";
+
+    public static void main(String[] args) throws Exception {
+        Path jarExecutavel = ALVO.resolve("pessoas-0.0.1-SNAPSHOT-exec.jar");
+        String classpath = ALVO.resolve("pessoas-0.0.1-SNAPSHOT.jar") + File.pathSeparator + ALVO.resolve("dependencias").resolve("*");
+        Path cds = ALVO.resolve("pessoas.jsa");
+        Path cdsAot = ALVO.resolve("pessoas-aot.jsa");
+        Path nativo = ALVO.resolve("pessoas");
+
+        List<String> resultados = new ArrayList<>();
+        if (Files.exists(jarExecutavel)) {
+            resultados.add(medir("jar-executavel", List.of(JAVA, "-jar", jarExecutavel.toString())));
+            resultados.add(medir("jvm", List.of(JAVA, "-cp", classpath, PRINCIPAL)));
+            resultados.add(medir("aot", List.of(JAVA, "-Dspring.aot.enabled=true", "-cp", classpath, PRINCIPAL)));
+        }
+        if (Files.exists(cds)) {
+            resultados.add(medir("cds", List.of(JAVA, "-XX:SharedArchiveFile=" + cds, "-Xlog:cds=error", "-cp", classpath, PRINCIPAL)));
+        }
+        if (Files.exists(cdsAot)) {
+            resultados.add(medir("aot+cds", List.of(JAVA, "-XX:SharedArchiveFile=" + cdsAot, "-Xlog:cds=error",
+                    "-Dspring.aot.enabled=true", "-cp", classpath, PRINCIPAL)));
+        }
+        if (Files.isExecutable(nativo)) {
+            resultados.add(medir("nativo", List.of(nativo.toString())));
+        }
+        if (resultados.isEmpty()) {
+            System.out.println("Nenhum artefato encontrado. Gere-os antes com: mvn -P inicializacao package");
+            return;
+        }
+
+        System.out.printf("%nrepetições=%d%n", REPETICOES);
+        System.out.printf("%-20s %12s %12s %12s%n", "modo", "mediana ms", "mín ms", "máx ms");
+        resultados.forEach(System.out::println);
+    }
+
+    private static String medir(String modo, List<String> comando) throws Exception {
+        long[] tempos = new long[REPETICOES];
+        for (int i = 0; i < REPETICOES; i++) {
+            tempos[i] = primeiraResposta(comando);
+            System.out.printf("%s: %d ms%n", modo, tempos[i] / 1_000_000);
+        }
+        Arrays.sort(tempos);
+        return String.format("%-20s %12.0f %12.0f %12.0f", modo,
+                tempos[REPETICOES / 2] / 1e6, tempos[0] / 1e6, tempos[REPETICOES - 1] / 1e6);
+    }
+
+    // sobe a aplicação em uma porta livre e consulta a api até receber um 200, devolvendo o tempo decorrido desde o
+    // início do processo. O processo é encerrado em seguida, junto com o banco em memória
+    private static long primeiraResposta(List<String> comando) throws Exception {
+        int porta = portaLivre();
+        List<String> completo = new ArrayList<>(comando);
+        completo.add("--server.port=" + porta);
+        completo.add("--logging.level.root=warn");
+
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/pessoa?size=1")).build();
+        try (HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build()) {
+            long inicio = System.nanoTime();
+            Process processo = new ProcessBuilder(completo).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            try {
+                while (System.nanoTime() - inicio < LIMITE.toNanos()) {
+                    if (!processo.isAlive()) {
+                        throw new IllegalStateException("A aplicação terminou antes de responder: " + String.join(" ", comando));
+                    }
+                    try {
+                        if (http.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                            return System.nanoTime() - inicio;
+                        }
+                    } catch (ConnectException ex) {
+                        // o servidor ainda não está ouvindo na porta
+                    }
+                    Thread.sleep(5);
+                }
+                throw new IllegalStateException("A aplicação não respondeu em " + LIMITE.toSeconds() + "s: " + String.join(" ", comando));
+            } finally {
+                processo.destroy();
+                processo.waitFor();
+            }
+        }
+    }
+
+    private static int portaLivre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.attornatus.pessoas.benchmark;
+
+import org.attornatus.pessoas.PessoasApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// compara vazão e latência do servidor rodando em threads de plataforma e em threads virtuais. Cada modo sobe a
+// aplicação em um contexto e banco próprios, recebe a mesma massa de dados e passa por um aquecimento antes da
+// medição. Os parâmetros podem ser ajustados com -Dbenchmark.concorrencia, -Dbenchmark.duracao (segundos),
+// -Dbenchmark.aquecimento (segundos) e -Dbenchmark.pessoas. O controle de admissão fica desligado, para que a
+// comparação meça o atendimento das requisições e não as recusas com 503
+public class ComparativoDeThreads {
+
+    public static void main(String[] args) throws Exception {
+        List<String> resultados = new ArrayList<>();
+        for (boolean virtuais : new boolean[]{false, true}) {
+            String modo = virtuais ? "virtuais" : "plataforma";
+            try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(PessoasApplication.class)
+                    .run(
+                            "--server.port=0",
+                            "--spring.threads.virtual.enabled=" + virtuais,
+                            "--spring.datasource.url=jdbc:h2:mem:benchmark-" + modo,
+                            "--pessoas.admissao.habilitada=false",
+                            "--logging.level.root=warn")) {
+                GeradorDeCarga carga = new GeradorDeCarga(((WebServerApplicationContext) contexto).getWebServer().getPort());
+                carga.popularPelaApi();
+                resultados.add(carga.aquecerEMedir(modo));
+            }
+        }
+        GeradorDeCarga.imprimir(resultados);
+    }
+}
@@ -0,0 +1,44 @@
+package org.attornatus.pessoas.benchmark;
+
+import org.attornatus.pessoas.PessoasApplication;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// compara a pilha servlet (tomcat + jpa, com threads de plataforma e virtuais) com a variante reativa (netty +
+// r2dbc) sob a mesma carga, para decidir qual usar em cada implantação. Executado com:
+// mvn -P benchmark test-compile exec:java -Dbenchmark.classe=org.attornatus.pessoas.benchmark.ComparativoServletReativo
+public class ComparativoServletReativo {
+
+    public static void main(String[] args) throws Exception {
+        List<String> resultados = new ArrayList<>();
+        resultados.add(executar("servlet-plataforma", new SpringApplicationBuilder(PessoasApplication.class),
+                "--spring.threads.virtual.enabled=false", "--spring.datasource.url=jdbc:h2:mem:benchmark-plataforma"));
+        resultados.add(executar("servlet-virtuais", new SpringApplicationBuilder(PessoasApplication.class),
+                "--spring.threads.virtual.enabled=true", "--spring.datasource.url=jdbc:h2:mem:benchmark-virtuais"));
+        resultados.add(executar("reativo", new SpringApplicationBuilder(PessoasReativoApplication.class)
+                        .profiles(PessoasReativoApplication.PERFIL),
+                "--spring.r2dbc.url=r2dbc:h2:mem:///benchmark-reativo;DB_CLOSE_DELAY=-1"));
+        GeradorDeCarga.imprimir(resultados);
+    }
+
+    // as propriedades são passadas como argumentos de linha de comando para terem precedência sobre o
+    // application.properties. A pilha reativa não tem controle de admissão, então ele é desligado na servlet para
+    // que as duas atendam a mesma carga sem recusas
+    private static String executar(String modo, SpringApplicationBuilder aplicacao, String... propriedades) throws Exception {
+        String[] argumentos = Stream.concat(
+                        Stream.of("--server.port=0", "--pessoas.admissao.habilitada=false", "--logging.level.root=warn"),
+                        Stream.of(propriedades))
+                .toArray(String[]::new);
+        try (ConfigurableApplicationContext contexto = aplicacao.run(argumentos)) {
+            GeradorDeCarga carga = new GeradorDeCarga(((WebServerApplicationContext) contexto).getWebServer().getPort());
+            carga.popularPelaApi();
+            return carga.aquecerEMedir(modo);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.attornatus.pessoas.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+// carga http compartilhada pelos benchmarks comparativos. Os clientes rodam em threads virtuais para que o gerador
+// não seja o gargalo mesmo com milhares de conexões simultâneas
+public class GeradorDeCarga {
+
+    public static final int CONCORRENCIA = Integer.getInteger("benchmark.concorrencia", 2000);
+    public static final Duration DURACAO = Duration.ofSeconds(Integer.getInteger("benchmark.duracao", 30));
+    public static final Duration AQUECIMENTO = Duration.ofSeconds(Integer.getInteger("benchmark.aquecimento", 10));
+    public static final int PESSOAS = Integer.getInteger("benchmark.pessoas", 10000);
+
+    private final int porta;
+
+    public GeradorDeCarga(int porta) {
+        this.porta = porta;
+    }
+
+    public static void imprimir(List<String> resultados) {
+        System.out.printf("%nconcorrência=%d duração=%ss pessoas=%d%n", CONCORRENCIA, DURACAO.toSeconds(), PESSOAS);
+        System.out.printf("%-20s %12s %10s %10s %10s %10s%n", "modo", "req/s", "p50 ms", "p99 ms", "máx ms", "erros");
+        resultados.forEach(System.out::println);
+    }
+
+    // aquece o servidor e mede, devolvendo a linha de resultado do modo informado
+    public String aquecerEMedir(String modo) throws Exception {
+        medir(AQUECIMENTO);
+        Medicao medicao = medir(DURACAO);
+        return String.format("%-20s %12.0f %10.2f %10.2f %10.2f %10d", modo,
+                medicao.latencias.length / (double) DURACAO.toSeconds(),
+                medicao.percentil(50) / 1e6, medicao.percentil(99) / 1e6, medicao.percentil(100) / 1e6,
+                medicao.erros);
+    }
+
+    // cria as pessoas e três endereços para cada uma pela própria api, o que funciona em qualquer uma das pilhas
+    public void popularPelaApi() throws Exception {
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(clientes).build()) {
+            Semaphore emAndamento = new Semaphore(64);
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 1; i <= PESSOAS; i++) {
+                int numero = i;
+                emAndamento.acquire();
+                futuros.add(clientes.submit(() -> {
+                    try {
+                        String pessoa = "{\"nome\":\"Pessoa " + numero + "\",\"dataDeNascimento\":\""
+                                + LocalDate.of(1950, 1, 1).plusDays(numero % 20000) + "\"}";
+                        String criada = criar(http, "/pessoa", pessoa);
+                        String idPessoa = criada.replaceAll(".*\"id\":(\\d+).*", "$1");
+                        for (int j = 0; j < 3; j++) {
+                            criar(http, "/endereco", endereco(j, numero, idPessoa));
+                        }
+                        return null;
+                    } finally {
+                        emAndamento.release();
+                    }
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        }
+    }
+
+    // a massa precisa ser criada por inteiro, então qualquer resposta diferente de 201 interrompe a medição em vez
+    // de seguir com ids lidos de um corpo de erro
+    private String criar(HttpClient http, String caminho, String corpo) throws Exception {
+        HttpResponse<String> resposta = http.send(post(caminho, corpo), HttpResponse.BodyHandlers.ofString());
+        if (resposta.statusCode() != 201) {
+            throw new IllegalStateException("Falha ao popular " + caminho + ": status " + resposta.statusCode() + " " + resposta.body());
+        }
+        return resposta.body();
+    }
+
+    // carga de laço fechado: cada cliente dispara uma nova requisição assim que recebe a resposta da anterior,
+    // alternando entre leituras por id, listagens paginadas e escritas que passam pelo banco
+    public Medicao medir(Duration duracao) throws Exception {
+        long fim = System.nanoTime() + duracao.toNanos();
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clientes)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .build()) {
+            List<Future<long[]>> futuros = new ArrayList<>();
+            long[] erros = new long[CONCORRENCIA];
+            for (int c = 0; c < CONCORRENCIA; c++) {
+                int cliente = c;
+                futuros.add(clientes.submit(() -> {
+                    long[] latencias = new long[1024];
+                    int total = 0;
+                    while (System.nanoTime() < fim) {
+                        HttpRequest requisicao = proximaRequisicao();
+                        long inicio = System.nanoTime();
+                        try {
+                            HttpResponse<Void> resposta = http.send(requisicao, HttpResponse.BodyHandlers.discarding());
+                            if (resposta.statusCode() >= 400) {
+                                erros[cliente]++;
+                            }
+                        } catch (Exception e) {
+                            erros[cliente]++;
+                        }
+                        if (total == latencias.length) {
+                            latencias = Arrays.copyOf(latencias, total * 2);
+                        }
+                        latencias[total++] = System.nanoTime() - inicio;
+                    }
+                    return Arrays.copyOf(latencias, total);
+                }));
+            }
+
+            List<long[]> parciais = new ArrayList<>();
+            for (Future<long[]> futuro : futuros) {
+                parciais.add(futuro.get());
+            }
+            return new Medicao(parciais.stream().flatMapToLong(Arrays::stream).sorted().toArray(),
+                    Arrays.stream(erros).sum());
+        }
+    }
+
+    private HttpRequest proximaRequisicao() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        long idPessoa = aleatorio.nextLong(1, PESSOAS + 1);
+        int sorteio = aleatorio.nextInt(100);
+        if (sorteio < 50) {
+            return HttpRequest.newBuilder(uri("/pessoa/" + idPessoa)).build();
+        }
+        if (sorteio < 75) {
+            return HttpRequest.newBuilder(uri("/endereco/" + idPessoa)).build();
+        }
+        if (sorteio < 95) {
+            return HttpRequest.newBuilder(uri("/pessoa?page=" + aleatorio.nextInt(PESSOAS / 20) + "&size=20")).build();
+        }
+        return post("/endereco", endereco(9, 1, String.valueOf(idPessoa)));
+    }
+
+    private HttpRequest post(String caminho, String corpo) {
+        return HttpRequest.newBuilder(uri(caminho))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+
+    private URI uri(String caminho) {
+        return URI.create("http://localhost:" + porta + caminho);
+    }
+
+    private static String endereco(int j, int numero, String idPessoa) {
+        return "{\"logradouro\":\"Rua " + j + "\",\"cep\":\"0100000" + j + "\",\"numero\":" + numero
+                + ",\"cidade\":\"Cidade " + numero % 100 + "\",\"principal\":false,\"idPessoa\":" + idPessoa + "}";
+    }
+
+    public record Medicao(long[] latencias, long erros) {
+
+        public long percentil(double percentil) {
+            if (latencias.length == 0) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(percentil / 100 * latencias.length) - 1;
+            return latencias[Math.max(0, Math.min(indice, latencias.length - 1))];
+        }
+    }
+}
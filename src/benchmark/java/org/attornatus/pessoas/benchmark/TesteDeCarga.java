@@ -0,0 +1,308 @@
+package org.attornatus.pessoas.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.attornatus.pessoas.PessoasApplication;
+import org.attornatus.pessoas.service.ImportacaoService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// teste de carga em laço aberto: as requisições são disparadas numa taxa fixa, independente de quanto o servidor
+// demora para responder. A latência de cada uma é medida a partir do instante em que ela deveria ter sido enviada, e
+// não de quando foi de fato enviada, o que corrige a omissão coordenada: se o servidor trava, as requisições que
+// deveriam ter saído durante a trava contam todo o tempo de espera. A latência só do envio até a resposta também é
+// registrada, para comparação.
+//
+// Parâmetros, todos opcionais:
+// -Dcarga.taxa         requisições por segundo (padrão 1000)
+// -Dcarga.duracao      segundos de medição (padrão 60)
+// -Dcarga.aquecimento  segundos de aquecimento na mesma taxa, descartados (padrão 15)
+// -Dcarga.pessoas      pessoas na massa inicial, cada uma com três endereços (padrão 10000)
+// -Dcarga.mix          pesos das operações (padrão pessoa=80,enderecos=10,criar=5,principal=5)
+// -Dcarga.saida        arquivo json com o resultado (padrão target/carga-<instante>.json)
+// -Dcarga.admissao     liga o controle de admissão, que recusa o excesso com 503 (padrão false, para medir o
+//                      atendimento de toda a carga)
+public class TesteDeCarga {
+
+    private static final int TAXA = Integer.getInteger("carga.taxa", 1000);
+    private static final Duration DURACAO = Duration.ofSeconds(Integer.getInteger("carga.duracao", 60));
+    private static final Duration AQUECIMENTO = Duration.ofSeconds(Integer.getInteger("carga.aquecimento", 15));
+    private static final int PESSOAS = Integer.getInteger("carga.pessoas", 10000);
+    private static final String MIX = System.getProperty("carga.mix", "pessoa=80,enderecos=10,criar=5,principal=5");
+    private static final boolean ADMISSAO = Boolean.getBoolean("carga.admissao");
+    private static final Duration TEMPO_LIMITE = Duration.ofSeconds(30);
+
+    enum Operacao {
+        PESSOA("pessoa"),
+        ENDERECOS("enderecos"),
+        CRIAR("criar"),
+        PRINCIPAL("principal");
+
+        private final String chave;
+
+        Operacao(String chave) {
+            this.chave = chave;
+        }
+
+        static Operacao daChave(String chave) {
+            for (Operacao operacao : values()) {
+                if (operacao.chave.equals(chave)) return operacao;
+            }
+            throw new IllegalArgumentException("Operação desconhecida no mix: " + chave);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<Operacao, Integer> mix = lerMix(MIX);
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(PessoasApplication.class)
+                .run("--server.port=0", "--pessoas.admissao.habilitada=" + ADMISSAO, "--logging.level.root=warn")) {
+            popular(contexto.getBean(ImportacaoService.class));
+            URI base = URI.create("http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort());
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient http = HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_1_1)
+                         .executor(executor)
+                         .connectTimeout(TEMPO_LIMITE)
+                         .build()) {
+                System.out.printf("aquecendo por %ds a %d req/s%n", AQUECIMENTO.toSeconds(), TAXA);
+                executar(http, base, mix, AQUECIMENTO);
+
+                System.out.printf("medindo por %ds a %d req/s%n", DURACAO.toSeconds(), TAXA);
+                Map<Operacao, Resumo> resumos = new EnumMap<>(Operacao.class);
+                executar(http, base, mix, DURACAO).forEach((operacao, estatistica) -> resumos.put(operacao, estatistica.resumir()));
+
+                imprimir(resumos);
+                gravar(mix, resumos);
+            }
+        }
+    }
+
+    private static Map<Operacao, Estatisticas> executar(HttpClient http, URI base, Map<Operacao, Integer> mix,
+                                                        Duration duracao) throws InterruptedException {
+        Map<Operacao, Estatisticas> estatisticas = new EnumMap<>(Operacao.class);
+        mix.keySet().forEach(operacao -> estatisticas.put(operacao, new Estatisticas()));
+        List<Operacao> sorteio = new ArrayList<>();
+        mix.forEach((operacao, peso) -> {
+            for (int i = 0; i < peso; i++) sorteio.add(operacao);
+        });
+
+        AtomicLong pendentes = new AtomicLong();
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / TAXA;
+        long total = duracao.toNanos() / intervalo;
+        long inicio = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            // o instante previsto não depende das respostas anteriores. Se o envio atrasar, as requisições seguintes
+            // saem imediatamente, mas continuam medidas a partir do instante em que deveriam ter saído
+            long previsto = inicio + i * intervalo;
+            long restante;
+            while ((restante = previsto - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(restante);
+            }
+
+            Operacao operacao = sorteio.get(ThreadLocalRandom.current().nextInt(sorteio.size()));
+            Estatisticas estatistica = estatisticas.get(operacao);
+            long enviado = System.nanoTime();
+            pendentes.incrementAndGet();
+            http.sendAsync(requisicao(base, operacao), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resposta, erro) -> {
+                        long fim = System.nanoTime();
+                        estatistica.registrar(fim - previsto, fim - enviado, erro != null || resposta.statusCode() >= 400);
+                        pendentes.decrementAndGet();
+                    });
+        }
+
+        // aguarda as respostas que ainda estão a caminho, que são limitadas pelo tempo limite das requisições
+        while (pendentes.get() > 0) {
+            Thread.sleep(10);
+        }
+        return estatisticas;
+    }
+
+    private static HttpRequest requisicao(URI base, Operacao operacao) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        long idPessoa = aleatorio.nextLong(1, PESSOAS + 1);
+        return switch (operacao) {
+            case PESSOA -> HttpRequest.newBuilder(base.resolve("/pessoa/" + idPessoa)).timeout(TEMPO_LIMITE).build();
+            case ENDERECOS -> HttpRequest.newBuilder(base.resolve("/endereco/" + idPessoa)).timeout(TEMPO_LIMITE).build();
+            case CRIAR -> json(base.resolve("/pessoa"), "POST", "{\"nome\":\"Nova pessoa\",\"dataDeNascimento\":\"1990-01-01\"}");
+            // os endereços da massa inicial foram importados em sequência, três por pessoa
+            case PRINCIPAL -> json(base.resolve("/endereco/" + idPessoa), "PUT",
+                    "{\"idEndereco\":" + ((idPessoa - 1) * 3 + 1 + aleatorio.nextInt(3)) + "}");
+        };
+    }
+
+    private static HttpRequest json(URI uri, String metodo, String corpo) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(TEMPO_LIMITE)
+                .header("Content-Type", "application/json")
+                .method(metodo, HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+
+    private static void popular(ImportacaoService importacaoService) throws Exception {
+        StringBuilder pessoas = new StringBuilder();
+        StringBuilder enderecos = new StringBuilder();
+        for (int i = 1; i <= PESSOAS; i++) {
+            pessoas.append("{\"nome\":\"Pessoa ").append(i).append("\",\"dataDeNascimento\":\"")
+                    .append(LocalDate.of(1950, 1, 1).plusDays(i % 20000)).append("\"}\n");
+            for (int j = 0; j < 3; j++) {
+                enderecos.append("{\"logradouro\":\"Rua ").append(j).append("\",\"cep\":\"0100000").append(j)
+                        .append("\",\"numero\":").append(i).append(",\"cidade\":\"Cidade ").append(i % 100)
+                        .append("\",\"principal\":").append(j == 0).append(",\"idPessoa\":").append(i).append("}\n");
+            }
+        }
+        importacaoService.importarPessoas(new ByteArrayInputStream(pessoas.toString().getBytes(StandardCharsets.UTF_8)), false);
+        importacaoService.importarEnderecos(new ByteArrayInputStream(enderecos.toString().getBytes(StandardCharsets.UTF_8)), false);
+    }
+
+    private static Map<Operacao, Integer> lerMix(String mix) {
+        Map<Operacao, Integer> pesos = new EnumMap<>(Operacao.class);
+        for (String parte : mix.split(",")) {
+            String[] chaveEPeso = parte.trim().split("=");
+            int peso = Integer.parseInt(chaveEPeso[1].trim());
+            if (peso > 0) pesos.put(Operacao.daChave(chaveEPeso[0].trim()), peso);
+        }
+        if (pesos.isEmpty()) throw new IllegalArgumentException("O mix precisa de ao menos uma operação com peso positivo");
+        return pesos;
+    }
+
+    private static void imprimir(Map<Operacao, Resumo> resumos) {
+        System.out.printf("%n%-12s %10s %8s %10s %10s %10s %10s %10s %12s%n",
+                "operação", "total", "erros", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms", "p99 envio ms");
+        resumos.forEach((operacao, resumo) -> imprimirLinha(operacao.chave, resumo));
+        imprimirLinha("total", Resumo.juntar(List.copyOf(resumos.values())));
+    }
+
+    private static void imprimirLinha(String nome, Resumo resumo) {
+        Histogram h = resumo.resposta();
+        System.out.printf("%-12s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f %12.2f%n", nome, h.getTotalCount(),
+                resumo.erros(), ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()),
+                ms(resumo.envio().getValueAtPercentile(99)));
+    }
+
+    // grava o resultado em json, com os percentis já calculados e os histogramas completos codificados, que podem
+    // ser decodificados com Histogram.decodeFromCompressedByteBuffer para comparar ou somar execuções
+    private static void gravar(Map<Operacao, Integer> mix, Map<Operacao, Resumo> resumos) throws Exception {
+        Map<String, Object> configuracao = new LinkedHashMap<>();
+        configuracao.put("taxa", TAXA);
+        configuracao.put("duracaoSegundos", DURACAO.toSeconds());
+        configuracao.put("aquecimentoSegundos", AQUECIMENTO.toSeconds());
+        configuracao.put("pessoas", PESSOAS);
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        mix.forEach((operacao, peso) -> pesos.put(operacao.chave, peso));
+        configuracao.put("mix", pesos);
+
+        Map<String, Object> operacoes = new LinkedHashMap<>();
+        resumos.forEach((operacao, resumo) -> operacoes.put(operacao.chave, resumo.paraMapa()));
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("instante", Instant.now().toString());
+        resultado.put("configuracao", configuracao);
+        resultado.put("operacoes", operacoes);
+        resultado.put("total", Resumo.juntar(List.copyOf(resumos.values())).paraMapa());
+
+        Path saida = Path.of(System.getProperty("carga.saida", "target/carga-" + System.currentTimeMillis() + ".json"));
+        if (saida.getParent() != null) Files.createDirectories(saida.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(saida.toFile(), resultado);
+        System.out.println("\nresultado gravado em " + saida.toAbsolutePath());
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    // latências em microssegundos, com três dígitos significativos e faixa que cresce conforme necessário
+    private static class Estatisticas {
+        private final Recorder resposta = new Recorder(3);
+        private final Recorder envio = new Recorder(3);
+        private final AtomicLong erros = new AtomicLong();
+
+        void registrar(long respostaNanos, long envioNanos, boolean erro) {
+            resposta.recordValue(TimeUnit.NANOSECONDS.toMicros(respostaNanos));
+            envio.recordValue(TimeUnit.NANOSECONDS.toMicros(envioNanos));
+            if (erro) erros.incrementAndGet();
+        }
+
+        // os histogramas são zerados a cada resumo, então ele deve ser pedido uma única vez ao fim da fase
+        Resumo resumir() {
+            return new Resumo(resposta.getIntervalHistogram(), envio.getIntervalHistogram(), erros.get());
+        }
+    }
+
+    private record Resumo(Histogram resposta, Histogram envio, long erros) {
+
+        static Resumo juntar(List<Resumo> resumos) {
+            Histogram resposta = new Histogram(3);
+            Histogram envio = new Histogram(3);
+            long erros = 0;
+            for (Resumo resumo : resumos) {
+                resposta.add(resumo.resposta());
+                envio.add(resumo.envio());
+                erros += resumo.erros();
+            }
+            return new Resumo(resposta, envio, erros);
+        }
+
+        Map<String, Object> paraMapa() {
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            mapa.put("total", resposta.getTotalCount());
+            mapa.put("erros", erros);
+            mapa.put("latenciaMs", percentis(resposta));
+            mapa.put("latenciaDoEnvioMs", percentis(envio));
+            mapa.put("histogramaDeLatencia", codificar(resposta));
+            return mapa;
+        }
+
+        private static Map<String, Double> percentis(Histogram histograma) {
+            Map<String, Double> percentis = new LinkedHashMap<>();
+            percentis.put("media", histograma.getMean() / 1000.0);
+            for (double percentil : new double[]{50, 90, 99, 99.9, 99.99}) {
+                percentis.put("p" + (percentil % 1 == 0 ? String.valueOf((int) percentil) : String.valueOf(percentil)),
+                        ms(histograma.getValueAtPercentile(percentil)));
+            }
+            percentis.put("max", ms(histograma.getMaxValue()));
+            return percentis;
+        }
+
+        private static String codificar(Histogram histograma) {
+            ByteBuffer buffer = ByteBuffer.allocate(histograma.getNeededByteBufferCapacity());
+            int tamanho = histograma.encodeIntoCompressedByteBuffer(buffer);
+            byte[] bytes = new byte[tamanho];
+            buffer.flip();
+            buffer.get(bytes);
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+    }
+}
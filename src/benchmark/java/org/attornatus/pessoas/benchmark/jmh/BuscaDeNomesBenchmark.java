@@ -0,0 +1,83 @@
+package org.attornatus.pessoas.benchmark.jmh;
+
+import org.attornatus.pessoas.indice.IndiceDeNomes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// busca por nome no índice em memória com milhões de pessoas, medida por amostragem para que o relatório traga os
+// percentis de cada busca, e não só a média. Os nomes juntam prenomes e sobrenomes comuns, que formam listas enormes,
+// com sobrenomes gerados por sílabas, que deixam o vocabulário com dezenas de milhares de palavras
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class BuscaDeNomesBenchmark {
+    private static final String[] PRENOMES = {"Maria", "José", "Ana", "João", "Antônio", "Francisco", "Carlos", "Paulo",
+            "Pedro", "Lucas", "Luiz", "Marcos", "Luís", "Gabriel", "Rafael", "Francisca", "Daniel", "Marcelo", "Bruno",
+            "Eduardo", "Felipe", "Raimundo", "Rodrigo", "Antônia", "Adriana", "Juliana", "Márcia", "Fernanda", "Patrícia",
+            "Aline", "Sandra", "Camila", "Amanda", "Bruna", "Jéssica", "Letícia", "Júlia", "Luciana", "Vanessa", "Mariana"};
+    private static final String[] SOBRENOMES = {"Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira", "Alves",
+            "Pereira", "Lima", "Gomes", "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida", "Lopes", "Soares",
+            "Fernandes", "Vieira", "Barbosa", "Rocha", "Dias", "Nascimento", "Andrade", "Moreira", "Nunes", "Marques",
+            "Machado", "Mendes", "Freitas", "Cardoso", "Ramos", "Gonçalves", "Santana", "Teixeira", "Araújo", "Conceição"};
+    private static final String[] SILABAS = {"ba", "be", "ca", "co", "da", "de", "fa", "ga", "gu", "la", "le", "li", "lo",
+            "ma", "me", "mi", "na", "ne", "no", "pa", "pe", "ra", "re", "ri", "ro", "sa", "se", "ta", "te", "to", "va", "vi"};
+
+    @Param({"1000000", "3000000"})
+    private int pessoas;
+
+    private IndiceDeNomes indiceDeNomes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.indiceDeNomes = new IndiceDeNomes();
+        Random aleatorio = new Random(42);
+        for (long id = 1; id <= pessoas; id++) {
+            String nome = PRENOMES[aleatorio.nextInt(PRENOMES.length)] + " " + sobrenomeGerado(aleatorio) + " "
+                    + SOBRENOMES[aleatorio.nextInt(SOBRENOMES.length)];
+            indiceDeNomes.atualizar(id, nome);
+        }
+    }
+
+    @Benchmark
+    public IndiceDeNomes.Resultado prefixoDeUmaLetra() {
+        return indiceDeNomes.buscar(String.valueOf((char) ('a' + ThreadLocalRandom.current().nextInt(26))), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceDeNomes.Resultado prefixoDeTresLetras() {
+        return indiceDeNomes.buscar(sorteado(SOBRENOMES).substring(0, 3), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceDeNomes.Resultado palavraInteira() {
+        return indiceDeNomes.buscar(sorteado(PRENOMES), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceDeNomes.Resultado trechoDoMeio() {
+        return indiceDeNomes.buscar(sorteado(SILABAS) + sorteado(SILABAS), 0, 20);
+    }
+
+    @Benchmark
+    public IndiceDeNomes.Resultado prenomeEPrefixoDoSobrenome() {
+        return indiceDeNomes.buscar(sorteado(PRENOMES) + " " + sorteado(SOBRENOMES).substring(0, 2), 0, 20);
+    }
+
+
+    private static String sobrenomeGerado(Random aleatorio) {
+        StringBuilder sobrenome = new StringBuilder();
+        int silabas = 2 + aleatorio.nextInt(2);
+        for (int i = 0; i < silabas; i++) sobrenome.append(SILABAS[aleatorio.nextInt(SILABAS.length)]);
+        return sobrenome.toString();
+    }
+
+    private static String sorteado(String[] opcoes) {
+        return opcoes[ThreadLocalRandom.current().nextInt(opcoes.length)];
+    }
+}
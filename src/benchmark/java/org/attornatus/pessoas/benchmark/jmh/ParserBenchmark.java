@@ -0,0 +1,39 @@
+package org.attornatus.pessoas.benchmark.jmh;
+
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.util.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// conversões entre entidades e dtos, feitas em toda leitura e escrita da api
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    private Pessoa pessoa;
+    private Endereco endereco;
+
+    @Setup
+    public void setUp() {
+        this.pessoa = new Pessoa(1L, "João da Silva", LocalDate.of(1990, 10, 5));
+        this.endereco = new Endereco(1L, "Rua das Flores", "58.100-200", 123, "Campina Grande", true, pessoa);
+    }
+
+    @Benchmark
+    public PessoaDTO pessoaParaDTO() {
+        return Parser.pessoaParaDTO(pessoa);
+    }
+
+    @Benchmark
+    public EnderecoDTO enderecoParaDTO() {
+        return Parser.enderecoParaDTO(endereco);
+    }
+}
@@ -0,0 +1,55 @@
+package org.attornatus.pessoas.benchmark.jmh;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+// serialização em json dos corpos de resposta, com o mesmo ObjectMapper padrão montado pelo spring
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializacaoBenchmark {
+    private ObjectWriter writer;
+    private PessoaDTO pessoa;
+    private EnderecoDTO endereco;
+    private Page<PessoaDTO> pagina;
+
+    @Setup
+    public void setUp() {
+        this.writer = Jackson2ObjectMapperBuilder.json().build().writer();
+        this.pessoa = new PessoaDTO(1L, "João da Silva", LocalDate.of(1990, 10, 5));
+        this.endereco = new EnderecoDTO(1L, "Rua das Flores", "58.100-200", 123, "Campina Grande", true, 1L);
+        List<PessoaDTO> conteudo = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> new PessoaDTO(id, "Pessoa " + id, LocalDate.of(1990, 1, 1).plusDays(id)))
+                .toList();
+        this.pagina = new PageImpl<>(conteudo, PageRequest.of(0, 20), 1000);
+    }
+
+    @Benchmark
+    public byte[] pessoaDTO() throws Exception {
+        return writer.writeValueAsBytes(pessoa);
+    }
+
+    @Benchmark
+    public byte[] enderecoDTO() throws Exception {
+        return writer.writeValueAsBytes(endereco);
+    }
+
+    @Benchmark
+    public byte[] paginaDePessoaDTO() throws Exception {
+        return writer.writeValueAsBytes(pagina);
+    }
+}
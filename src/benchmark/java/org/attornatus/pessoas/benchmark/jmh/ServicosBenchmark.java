@@ -0,0 +1,106 @@
+package org.attornatus.pessoas.benchmark.jmh;
+
+import org.attornatus.pessoas.PessoasApplication;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.service.EnderecoService;
+import org.attornatus.pessoas.service.ImportacaoService;
+import org.attornatus.pessoas.service.PessoaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// serviços de ponta a ponta, com o contexto spring completo sobre um h2 em memória populado com a quantidade de
+// pessoas informada, cada uma com três endereços. Com cache desligado, toda leitura vai ao banco
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServicosBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int pessoas;
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private ConfigurableApplicationContext contexto;
+    private PessoaService pessoaService;
+    private EnderecoService enderecoService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.contexto = new SpringApplicationBuilder(PessoasApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh-" + pessoas + "-" + cache,
+                        // expiração zero faz toda entrada expirar já na leitura seguinte, desligando os caches
+                        "--pessoas.cache.pessoas.expiracao=" + (cache ? "10m" : "0s"),
+                        "--pessoas.cache.pessoas.expiracao-negativa=" + (cache ? "5s" : "0s"),
+                        "--pessoas.cache.enderecos.expiracao=" + (cache ? "10m" : "0s"),
+                        "--logging.level.root=warn");
+        this.pessoaService = contexto.getBean(PessoaService.class);
+        this.enderecoService = contexto.getBean(EnderecoService.class);
+        popular(contexto.getBean(ImportacaoService.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public PessoaDTO consultarPorId() {
+        return pessoaService.consultarPorId(idAleatorio());
+    }
+
+    @Benchmark
+    public Page<PessoaDTO> consultarTodos() {
+        return pessoaService.consultarTodos(PageRequest.of(ThreadLocalRandom.current().nextInt(pessoas / 20), 20));
+    }
+
+    @Benchmark
+    public List<EnderecoDTO> buscarEnderecosDaPessoa() {
+        return enderecoService.buscarEnderecosDaPessoa(idAleatorio());
+    }
+
+    @Benchmark
+    public EnderecoDTO escolherEnderecoPrincipal() {
+        // os endereços de cada pessoa foram importados em sequência, então os ids dela são conhecidos
+        long idPessoa = idAleatorio();
+        long idEndereco = (idPessoa - 1) * 3 + 1 + ThreadLocalRandom.current().nextInt(3);
+        return enderecoService.escolherEnderecoPrincipal(idPessoa, idEndereco);
+    }
+
+    private long idAleatorio() {
+        return ThreadLocalRandom.current().nextLong(1, pessoas + 1);
+    }
+
+    private void popular(ImportacaoService importacaoService) throws Exception {
+        StringBuilder linhasPessoas = new StringBuilder();
+        StringBuilder linhasEnderecos = new StringBuilder();
+        for (int i = 1; i <= pessoas; i++) {
+            linhasPessoas.append("{\"nome\":\"Pessoa ").append(i).append("\",\"dataDeNascimento\":\"")
+                    .append(LocalDate.of(1950, 1, 1).plusDays(i % 20000)).append("\"}\n");
+            for (int j = 0; j < 3; j++) {
+                linhasEnderecos.append("{\"logradouro\":\"Rua ").append(j).append("\",\"cep\":\"0100000").append(j)
+                        .append("\",\"numero\":").append(i).append(",\"cidade\":\"Cidade ").append(i % 100)
+                        .append("\",\"principal\":").append(j == 0).append(",\"idPessoa\":").append(i).append("}\n");
+            }
+        }
+        importacaoService.importarPessoas(new ByteArrayInputStream(linhasPessoas.toString().getBytes(StandardCharsets.UTF_8)), false);
+        importacaoService.importarEnderecos(new ByteArrayInputStream(linhasEnderecos.toString().getBytes(StandardCharsets.UTF_8)), false);
+    }
+}
@@ -0,0 +1,18 @@
+package org.attornatus.pessoas.admissao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ConfiguracaoDeAdmissao implements WebMvcConfigurer {
+
+    @Autowired
+    private ControleDeAdmissao controleDeAdmissao;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(controleDeAdmissao);
+    }
+}
@@ -0,0 +1,137 @@
+package org.attornatus.pessoas.admissao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.attornatus.pessoas.controller.EnderecoController;
+import org.attornatus.pessoas.controller.PessoaController;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// controle de admissão das requisições aos controllers de pessoas e endereços. Leituras e escritas têm limites de
+// concorrência adaptativos separados, para que escritas lentas não ocupem as vagas das leituras. Quando o limite é
+// atingido, a requisição é recusada na hora com 503 e Retry-After, em vez de ocupar uma thread do tomcat esperando
+// pelo banco. Os endpoints marcados com @TransferenciaEmMassa têm um limite fixo à parte, para que a duração de uma
+// exportação ou importação não seja lida como lentidão do banco e derrube o limite das leituras
+@Component
+public class ControleDeAdmissao implements HandlerInterceptor, MeterBinder {
+
+    private static final String ADMISSAO = ControleDeAdmissao.class.getName() + ".admissao";
+
+    private final boolean habilitado;
+    private final Duration tentarNovamenteEm;
+    private final LimiteAdaptativo leituras;
+    private final LimiteAdaptativo escritas;
+    private final LimiteAdaptativo transferencias;
+
+    // as métricas começam em um registro local e passam ao da aplicação quando ele é ligado
+    private Map<LimiteAdaptativo, Counter> recusadas;
+
+    public ControleDeAdmissao(@Value("${pessoas.admissao.habilitada:true}") boolean habilitado,
+                              @Value("${pessoas.admissao.tentar-novamente-em:1s}") Duration tentarNovamenteEm,
+                              @Value("${pessoas.admissao.leituras.limite-inicial:100}") int limiteInicialDeLeituras,
+                              @Value("${pessoas.admissao.leituras.limite-minimo:10}") int limiteMinimoDeLeituras,
+                              @Value("${pessoas.admissao.leituras.limite-maximo:1000}") int limiteMaximoDeLeituras,
+                              @Value("${pessoas.admissao.escritas.limite-inicial:50}") int limiteInicialDeEscritas,
+                              @Value("${pessoas.admissao.escritas.limite-minimo:5}") int limiteMinimoDeEscritas,
+                              @Value("${pessoas.admissao.escritas.limite-maximo:500}") int limiteMaximoDeEscritas,
+                              @Value("${pessoas.admissao.transferencias.limite:4}") int limiteDeTransferencias) {
+        this.habilitado = habilitado;
+        this.tentarNovamenteEm = tentarNovamenteEm;
+        this.leituras = new LimiteAdaptativo(limiteInicialDeLeituras, limiteMinimoDeLeituras, limiteMaximoDeLeituras);
+        this.escritas = new LimiteAdaptativo(limiteInicialDeEscritas, limiteMinimoDeEscritas, limiteMaximoDeEscritas);
+        // com mínimo e máximo iguais, a latência das transferências não move o limite delas
+        this.transferencias = new LimiteAdaptativo(limiteDeTransferencias, limiteDeTransferencias, limiteDeTransferencias);
+        bindTo(new SimpleMeterRegistry());
+    }
+
+    public LimiteAdaptativo getLeituras() {
+        return leituras;
+    }
+
+    public LimiteAdaptativo getEscritas() {
+        return escritas;
+    }
+
+    public LimiteAdaptativo getTransferencias() {
+        return transferencias;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // o retorno de uma resposta assíncrona, como as transmitidas em stream, reaproveita a vaga da requisição original
+        if (!habilitado || request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod metodo)
+                || !controlado(metodo)) return true;
+
+        LimiteAdaptativo limite = metodo.hasMethodAnnotation(TransferenciaEmMassa.class) ? transferencias
+                : leitura(request) ? leituras : escritas;
+        if (!limite.tentarAdquirir()) {
+            recusadas.get(limite).increment();
+            throw new ServicoIndisponivelException("Servidor sobrecarregado. Tente novamente em instantes", tentarNovamenteEm);
+        }
+        request.setAttribute(ADMISSAO, new Admissao(limite, System.nanoTime()));
+        return true;
+    }
+
+    // nas respostas assíncronas, só é chamado ao fim do retorno assíncrono, quando a vaga finalmente é liberada
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMISSAO) instanceof Admissao admissao) admissao.liberar();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.recusadas = Map.of(
+                leituras, registrar(registry, leituras, "leitura"),
+                escritas, registrar(registry, escritas, "escrita"),
+                transferencias, registrar(registry, transferencias, "transferencia"));
+    }
+
+    private Counter registrar(MeterRegistry registry, LimiteAdaptativo limite, String tipo) {
+        Gauge.builder("pessoas.admissao.limite", limite, LimiteAdaptativo::getLimite)
+                .description("Limite atual de requisições simultâneas")
+                .tag("tipo", tipo)
+                .register(registry);
+        Gauge.builder("pessoas.admissao.em.andamento", limite, LimiteAdaptativo::getEmAndamento)
+                .description("Requisições admitidas em andamento")
+                .tag("tipo", tipo)
+                .register(registry);
+        return Counter.builder("pessoas.admissao.recusadas")
+                .description("Requisições recusadas por excederem o limite")
+                .tag("tipo", tipo)
+                .register(registry);
+    }
+
+    private boolean controlado(HandlerMethod metodo) {
+        Class<?> controller = metodo.getBeanType();
+        return PessoaController.class.isAssignableFrom(controller) || EnderecoController.class.isAssignableFrom(controller);
+    }
+
+    private boolean leitura(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    private record Admissao(LimiteAdaptativo limite, long inicio, AtomicBoolean liberada) {
+        Admissao(LimiteAdaptativo limite, long inicio) {
+            this(limite, inicio, new AtomicBoolean());
+        }
+
+        void liberar() {
+            if (liberada.compareAndSet(false, true)) limite.liberar(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.attornatus.pessoas.admissao;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// limite de requisições simultâneas ajustado pela latência observada, no estilo do gradiente do concurrency-limits.
+// A latência de cada requisição é comparada a uma média de longo prazo: enquanto ficam próximas, o limite cresce
+// aos poucos, e quando a latência sobe acima da tolerância, ele cai na proporção do aumento. Assim o limite acompanha
+// a capacidade do banco sem precisar ser calibrado, e o excesso é recusado em vez de esperar numa fila
+public class LimiteAdaptativo {
+
+    // quanto a latência pode superar a média de longo prazo antes de o limite começar a cair
+    private static final double TOLERANCIA = 1.5;
+    // peso de cada nova estimativa sobre o limite atual
+    private static final double SUAVIZACAO = 0.2;
+    // número aproximado de amostras que compõem a média de longo prazo
+    private static final int JANELA_DE_LONGO_PRAZO = 600;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+
+    private volatile double limite;
+    private double latenciaDeLongoPrazo;
+
+    public LimiteAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo) {
+        this.limite = limiteInicial;
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    public boolean tentarAdquirir() {
+        if (emAndamento.incrementAndGet() > getLimite()) {
+            emAndamento.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // libera a vaga e usa a latência da requisição para recalcular o limite
+    public void liberar(long latencia, TimeUnit unidade) {
+        int simultaneas = emAndamento.getAndDecrement();
+        atualizar(unidade.toNanos(latencia), simultaneas);
+    }
+
+    public int getLimite() {
+        return (int) limite;
+    }
+
+    public int getEmAndamento() {
+        return emAndamento.get();
+    }
+
+    private synchronized void atualizar(long latencia, int simultaneas) {
+        if (latencia <= 0) return;
+        if (latenciaDeLongoPrazo == 0) latenciaDeLongoPrazo = latencia;
+        latenciaDeLongoPrazo += (latencia - latenciaDeLongoPrazo) / JANELA_DE_LONGO_PRAZO;
+
+        // depois de um período lento, a média de longo prazo ficaria alta demais e deixaria o limite crescer mesmo com
+        // o banco sobrecarregado. Quando ela passa do dobro da latência atual, é reduzida para se recuperar mais rápido
+        if (latenciaDeLongoPrazo > 2 * latencia) latenciaDeLongoPrazo *= 0.95;
+
+        double gradiente = Math.max(0.5, Math.min(1.0, TOLERANCIA * latenciaDeLongoPrazo / latencia));
+        double fila = Math.sqrt(limite);
+        double novoLimite = limite * gradiente + fila;
+
+        // sem usar ao menos metade do limite, uma latência boa não prova que ele comporta mais, então o limite só
+        // cresce com uso. Uma latência alta, ao contrário, reduz o limite mesmo com pouca concorrência
+        if (novoLimite > limite && simultaneas < limite / 2) return;
+
+        limite = Math.max(limiteMinimo, Math.min(limiteMaximo, limite * (1 - SUAVIZACAO) + novoLimite * SUAVIZACAO));
+    }
+}
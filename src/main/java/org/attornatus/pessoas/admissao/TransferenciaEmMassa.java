@@ -0,0 +1,16 @@
+package org.attornatus.pessoas.admissao;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// marca os endpoints que transmitem ou recebem volumes inteiros, como exportações, buscas em stream e importações.
+// A duração deles depende do volume e não da carga do banco, então ocupam um limite fixo próprio no controle de
+// admissão e ficam fora do cálculo dos limites de leituras e escritas
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TransferenciaEmMassa {
+}
@@ -0,0 +1,85 @@
+package org.attornatus.pessoas.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// agrupa cargas simultâneas da mesma chave em uma só (single-flight). A primeira chamada executa o carregador e as
+// que chegarem enquanto ele roda aguardam e recebem o mesmo resultado, ou a mesma exceção. Nada é guardado depois
+// que a carga termina, isso fica a cargo do cache que a usa
+public class CargaUnica<K, V> {
+
+    private final String cache;
+    private final Duration esperaMaxima;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+
+    // as métricas começam em um registro local e passam ao da aplicação quando o cache é ligado a ele
+    private Counter executadas;
+    private Counter compartilhadas;
+
+    public CargaUnica(String cache, Duration esperaMaxima) {
+        this.cache = cache;
+        this.esperaMaxima = esperaMaxima;
+        bindTo(new SimpleMeterRegistry());
+    }
+
+    public V carregar(K chave, Supplier<V> carregador) {
+        CompletableFuture<V> nova = new CompletableFuture<>();
+        CompletableFuture<V> existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            compartilhadas.increment();
+            return aguardar(existente);
+        }
+
+        executadas.increment();
+        try {
+            V valor = carregador.get();
+            nova.complete(valor);
+            return valor;
+        } catch (Throwable ex) {
+            // qualquer falha, inclusive um Error, é entregue a quem aguardava, e o finally libera a chave
+            nova.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        this.executadas = contador(registry, "executada");
+        this.compartilhadas = contador(registry, "compartilhada");
+    }
+
+    private Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("pessoas.cache.cargas")
+                .description("Cargas do banco feitas pelos caches, e as que aproveitaram uma carga simultânea da mesma chave")
+                .tag("cache", cache)
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    // a espera é limitada, para que uma carga travada não prenda indefinidamente todas as consultas à mesma chave
+    private V aguardar(CompletableFuture<V> carga) {
+        try {
+            return carga.get(esperaMaxima.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) throw causa;
+            if (ex.getCause() instanceof Error causa) throw causa;
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ServicoIndisponivelException("A consulta não foi concluída a tempo. Tente novamente em instantes", Duration.ofSeconds(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enquanto aguardava a carga", ex);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.attornatus.pessoas.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// cache das listas de endereços de cada pessoa. Cada lista é guardada junto com a versão da pessoa no momento em
+// que começou a ser carregada, e toda escrita incrementa essa versão. Assim, uma lista carregada antes de uma escrita
+// nunca é servida depois dela, mesmo que seja guardada após a invalidação. O tamanho é limitado pelo total de
+// endereços guardados, e não pelo número de pessoas
+@Component
+public class EnderecoCache implements MeterBinder {
+
+    // as versões ficam em faixas fixas indexadas pelo id da pessoa, mantendo a memória constante. Pessoas na mesma
+    // faixa apenas invalidam as listas umas das outras
+    private static final int FAIXAS_DE_VERSAO = 4096;
+
+    private final Cache<Long, ListaVersionada> cache;
+    private final AtomicLongArray versoes = new AtomicLongArray(FAIXAS_DE_VERSAO);
+    private final CargaUnica<CargaVersionada, List<EnderecoDTO>> cargas;
+
+    public EnderecoCache(@Value("${pessoas.cache.enderecos.maximo-de-enderecos:500000}") long maximoDeEnderecos,
+                         @Value("${pessoas.cache.enderecos.expiracao:10m}") Duration expiracao,
+                         @Value("${pessoas.cache.espera-maxima-da-carga:30s}") Duration esperaMaximaDaCarga) {
+        this.cargas = new CargaUnica<>("enderecos", esperaMaximaDaCarga);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximoDeEnderecos)
+                .weigher((Long idPessoa, ListaVersionada lista) -> lista.enderecos().size() + 1)
+                .expireAfterWrite(expiracao)
+                .recordStats()
+                .build();
+    }
+
+    // as listas retornadas são imutáveis e compartilhadas entre as requisições, então seus dtos não devem ser alterados
+    public List<EnderecoDTO> buscar(Long idPessoa, Supplier<List<EnderecoDTO>> carregador) {
+        // a versão é lida antes da consulta ao banco, para que uma escrita durante o carregamento o torne obsoleto
+        long versao = versoes.get(faixa(idPessoa));
+
+        ListaVersionada guardada = cache.getIfPresent(idPessoa);
+        if (guardada != null && guardada.versao() == versao) return guardada.enderecos();
+
+        // as consultas simultâneas à mesma pessoa compartilham uma única carga, desde que tenham lido a mesma versão.
+        // Quem chega depois de uma escrita nunca aproveita uma carga iniciada antes dela
+        List<EnderecoDTO> enderecos = cargas.carregar(new CargaVersionada(idPessoa, versao), () -> List.copyOf(carregador.get()));
+        ListaVersionada carregada = new ListaVersionada(versao, enderecos);
+
+        // entre duas cargas concorrentes, mantém a de versão mais recente
+        cache.asMap().merge(idPessoa, carregada, (atual, nova) -> atual.versao() > nova.versao() ? atual : nova);
+        return carregada.enderecos();
+    }
+
+    public void invalidar(Long idPessoa) {
+        versoes.incrementAndGet(faixa(idPessoa));
+        cache.invalidate(idPessoa);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "enderecos");
+        cargas.bindTo(registry);
+    }
+
+    private int faixa(Long idPessoa) {
+        return (int) (Long.hashCode(idPessoa) & (FAIXAS_DE_VERSAO - 1));
+    }
+
+    private record ListaVersionada(long versao, List<EnderecoDTO> enderecos) {
+    }
+
+    private record CargaVersionada(Long idPessoa, long versao) {
+    }
+}
@@ -0,0 +1,96 @@
+package org.attornatus.pessoas.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// cache em memória das pessoas consultadas por id, limitado em tamanho e com expiração. Ids inexistentes também são
+// guardados, por um tempo menor, para que consultas repetidas a eles não cheguem ao banco
+@Component
+public class PessoaCache implements MeterBinder {
+
+    private final Cache<Long, Optional<PessoaDTO>> cache;
+    private final CargaUnica<Long, Optional<PessoaDTO>> cargas;
+
+    public PessoaCache(@Value("${pessoas.cache.pessoas.tamanho-maximo:100000}") long tamanhoMaximo,
+                       @Value("${pessoas.cache.pessoas.expiracao:10m}") Duration expiracao,
+                       @Value("${pessoas.cache.pessoas.expiracao-negativa:5s}") Duration expiracaoNegativa,
+                       @Value("${pessoas.cache.espera-maxima-da-carga:30s}") Duration esperaMaximaDaCarga) {
+        this.cargas = new CargaUnica<>("pessoas", esperaMaximaDaCarga);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new Expiry<Long, Optional<PessoaDTO>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<PessoaDTO> pessoa, long agora) {
+                        return (pessoa.isPresent() ? expiracao : expiracaoNegativa).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<PessoaDTO> pessoa, long agora, long duracaoAtual) {
+                        return expireAfterCreate(id, pessoa, agora);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<PessoaDTO> pessoa, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public Optional<PessoaDTO> buscar(Long id, Supplier<Optional<PessoaDTO>> carregador) {
+        // a leitura pelo mapa não entra nas estatísticas, que são registradas uma única vez pelo get abaixo
+        Optional<PessoaDTO> guardada = cache.asMap().get(id);
+        if (guardada != null) return guardada.map(this::copiar);
+
+        // carrega a pessoa apenas se ela não estiver no cache. As consultas simultâneas ao mesmo id aguardam uma única
+        // carga, sem disputar o bloqueio do cache. Uma escrita concorrente para o mesmo id espera o fim do
+        // carregamento, então o valor carregado nunca sobrescreve um valor mais novo
+        return cargas.carregar(id, () -> cache.get(id, chave -> carregador.get())).map(this::copiar);
+    }
+
+    // busca várias pessoas de uma vez, carregando em uma única chamada apenas os ids que não estão no cache. O
+    // carregador deve devolver um valor para cada id pedido, vazio para os que não existem
+    public Map<Long, Optional<PessoaDTO>> buscarTodos(Collection<Long> ids, Function<Set<Long>, Map<Long, Optional<PessoaDTO>>> carregador) {
+        Map<Long, Optional<PessoaDTO>> pessoas = new HashMap<>();
+        cache.getAll(ids, faltantes -> carregador.apply(new HashSet<>(faltantes)))
+                .forEach((id, pessoa) -> pessoas.put(id, pessoa.map(this::copiar)));
+        return pessoas;
+    }
+
+    public void atualizar(PessoaDTO pessoa) {
+        cache.put(pessoa.getId(), Optional.of(copiar(pessoa)));
+    }
+
+    public void invalidar(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "pessoas");
+        cargas.bindTo(registry);
+    }
+
+    // as instâncias guardadas nunca saem do cache, já que os dtos são mutáveis
+    private PessoaDTO copiar(PessoaDTO pessoa) {
+        return new PessoaDTO(pessoa.getId(), pessoa.getNome(), pessoa.getDataDeNascimento());
+    }
+}
@@ -0,0 +1,103 @@
+package org.attornatus.pessoas.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// respostas das criações feitas com o cabeçalho Idempotency-Key. Cada chave guarda a requisição que a usou e o
+// resultado da sua execução, de modo que uma nova tentativa do cliente recebe a resposta original sem passar pelo
+// banco, e tentativas simultâneas aguardam a primeira em vez de executarem de novo. O número de chaves é limitado e
+// elas expiram após um tempo fixo desde a criação
+@Component
+public class RespostasIdempotentes implements MeterBinder {
+
+    private static final int TAMANHO_MAXIMO_DA_CHAVE = 255;
+
+    private final Cache<Chave, Execucao> cache;
+    private final Duration esperaMaxima;
+
+    public RespostasIdempotentes(@Value("${pessoas.idempotencia.maximo-de-chaves:100000}") long maximoDeChaves,
+                                 @Value("${pessoas.idempotencia.expiracao:24h}") Duration expiracao,
+                                 @Value("${pessoas.idempotencia.espera-maxima:30s}") Duration esperaMaxima) {
+        this.esperaMaxima = esperaMaxima;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximoDeChaves)
+                .expireAfterWrite(expiracao)
+                .recordStats()
+                .build();
+    }
+
+    // executa a ação apenas na primeira vez que a chave aparece para a operação. Sem chave, apenas executa a ação
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String operacao, String chaveDeIdempotencia, Object requisicao, Supplier<T> acao) {
+        if (chaveDeIdempotencia == null) return acao.get();
+        if (chaveDeIdempotencia.isBlank() || chaveDeIdempotencia.length() > TAMANHO_MAXIMO_DA_CHAVE) {
+            throw new BadRequestException("O cabeçalho Idempotency-Key deve ter entre 1 e " + TAMANHO_MAXIMO_DA_CHAVE + " caracteres");
+        }
+
+        Chave chave = new Chave(operacao, chaveDeIdempotencia);
+        Execucao nova = new Execucao(requisicao, new CompletableFuture<>());
+        Execucao existente = cache.asMap().putIfAbsent(chave, nova);
+
+        if (existente != null) {
+            // a mesma chave com outro corpo indica um erro do cliente, e não uma nova tentativa
+            if (!Objects.equals(existente.requisicao(), requisicao)) {
+                throw new BadRequestException("A Idempotency-Key " + chaveDeIdempotencia + " já foi usada com outra requisição");
+            }
+            return (T) aguardar(existente);
+        }
+
+        try {
+            T resultado = acao.get();
+            nova.resultado().complete(resultado);
+            return resultado;
+        } catch (Throwable ex) {
+            // uma falha, inclusive um Error, não é guardada: quem aguardava recebe o mesmo erro, e a próxima tentativa
+            // executa de novo
+            cache.asMap().remove(chave, nova);
+            nova.resultado().completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotencia");
+    }
+
+    // a espera é limitada, para que uma primeira execução travada não prenda todas as tentativas com a mesma chave
+    private Object aguardar(Execucao execucao) {
+        try {
+            return execucao.resultado().get(esperaMaxima.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) throw causa;
+            if (ex.getCause() instanceof Error causa) throw causa;
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ServicoIndisponivelException("A requisição original com esta Idempotency-Key ainda está em andamento. Tente novamente em instantes", Duration.ofSeconds(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enquanto aguardava a requisição original", ex);
+        }
+    }
+
+    private record Chave(String operacao, String chaveDeIdempotencia) {
+    }
+
+    private record Execucao(Object requisicao, CompletableFuture<Object> resultado) {
+    }
+}
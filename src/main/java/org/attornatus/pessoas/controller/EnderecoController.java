@@ -1,33 +1,74 @@
 package org.attornatus.pessoas.controller;
 
 import jakarta.validation.Valid;
+import org.attornatus.pessoas.admissao.TransferenciaEmMassa;
+import org.attornatus.pessoas.cache.RespostasIdempotentes;
 import org.attornatus.pessoas.dto.EnderecoDTO;
 import org.attornatus.pessoas.dto.IdEnderecoDTO;
+import org.attornatus.pessoas.dto.RelatorioImportacaoDTO;
+import org.attornatus.pessoas.service.BuscaDeEnderecosService;
 import org.attornatus.pessoas.service.EnderecoService;
+import org.attornatus.pessoas.service.ImportacaoService;
+import org.attornatus.pessoas.util.Etags;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("endereco")
 public class EnderecoController {
 
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
     @Autowired
     private EnderecoService enderecoService;
+    @Autowired
+    private ImportacaoService importacaoService;
+    @Autowired
+    private BuscaDeEnderecosService buscaDeEnderecosService;
+    @Autowired
+    private RespostasIdempotentes respostasIdempotentes;
 
     @PostMapping
-    public ResponseEntity<EnderecoDTO> criar(@RequestBody @Valid EnderecoDTO enderecoDTO) {
-        EnderecoDTO response = enderecoService.criar(enderecoDTO);
+    public ResponseEntity<EnderecoDTO> criar(@RequestBody @Valid EnderecoDTO enderecoDTO,
+                                       @RequestHeader(value = "Idempotency-Key", required = false) String chaveDeIdempotencia) {
+        // com a chave de idempotência, uma nova tentativa do cliente recebe a resposta da primeira sem criar outro registro
+        EnderecoDTO response = respostasIdempotentes.executar("criar-endereco", chaveDeIdempotencia, enderecoDTO, () -> enderecoService.criar(enderecoDTO));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @GetMapping("/{idPessoa}")
     public ResponseEntity<List<EnderecoDTO>> buscarEnderecosDaPessoa(@PathVariable Long idPessoa) {
+        // o etag permite que o spring responda 304 Not Modified, sem serializar o corpo, quando o cliente já o tem
         List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(idPessoa);
-        return ResponseEntity.status(HttpStatus.OK).body(response);
+        return ResponseEntity.status(HttpStatus.OK).eTag(Etags.de(response)).body(response);
+    }
+
+    @TransferenciaEmMassa
+    @GetMapping("/busca")
+    public ResponseEntity<StreamingResponseBody> buscar(@RequestParam(required = false) String cidade,
+                                                        @RequestParam(required = false) String cep,
+                                                        @RequestParam(required = false) String cepInicial,
+                                                        @RequestParam(required = false) String cepFinal,
+                                                        @RequestParam(defaultValue = "false") boolean principal,
+                                                        @RequestParam(required = false) String after,
+                                                        Pageable paginacao) {
+        BuscaDeEnderecosService.Consulta consulta = cidade != null
+                ? buscaDeEnderecosService.consultarPorCidade(cidade, principal, after, paginacao.getPageSize())
+                : buscaDeEnderecosService.consultarPorCep(cep, cepInicial, cepFinal, principal, after, paginacao.getPageSize());
+
+        // a página é escrita na resposta à medida que os endereços são lidos do banco, sem montar a lista em memória
+        StreamingResponseBody response = saida -> buscaDeEnderecosService.transmitir(consulta, saida);
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(response);
     }
 
     @PutMapping("/{idPessoa}")
@@ -36,4 +77,13 @@ public class EnderecoController {
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    @TransferenciaEmMassa
+    @PostMapping(value = "/importacao", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<RelatorioImportacaoDTO> importar(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoDoConteudo,
+                                                           InputStream corpo) throws IOException {
+        boolean csv = MediaType.parseMediaType(tipoDoConteudo).isCompatibleWith(TEXT_CSV);
+        RelatorioImportacaoDTO response = importacaoService.importarEnderecos(corpo, csv);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -62,6 +64,23 @@ public class ExceptionHandlerAdvice {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(ServicoIndisponivelException.class)
+    public ResponseEntity<StandardError> handleServicoIndisponivelException(ServicoIndisponivelException ex, HttpServletRequest request) {
+        StandardError response = new StandardError(
+                LocalDateTime.now(),
+                503,
+                "Service Unavailable",
+                request.getRequestURI(),
+                List.of(ex.getMessage())
+        );
+
+        // informa ao cliente quando vale a pena tentar de novo, arredondando para cima o tempo em segundos
+        long segundos = Math.max(1, (ex.getTentarNovamenteEm().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(segundos))
+                .body(response);
+    }
+
 
     @AllArgsConstructor
     @NoArgsConstructor
@@ -1,38 +1,119 @@
 package org.attornatus.pessoas.controller;
 
 import jakarta.validation.Valid;
+import org.attornatus.pessoas.admissao.TransferenciaEmMassa;
+import org.attornatus.pessoas.cache.RespostasIdempotentes;
+import org.attornatus.pessoas.dto.EstatisticasDTO;
+import org.attornatus.pessoas.dto.PaginaPorCursorDTO;
 import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.dto.PessoasPorIdsDTO;
+import org.attornatus.pessoas.dto.RelatorioImportacaoDTO;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.service.EstatisticasService;
+import org.attornatus.pessoas.service.ExportacaoService;
+import org.attornatus.pessoas.service.ImportacaoService;
 import org.attornatus.pessoas.service.PessoaService;
+import org.attornatus.pessoas.util.Etags;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("pessoa")
 public class PessoaController {
 
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
     @Autowired
     private PessoaService pessoaService;
+    @Autowired
+    private ImportacaoService importacaoService;
+    @Autowired
+    private ExportacaoService exportacaoService;
+    @Autowired
+    private EstatisticasService estatisticasService;
+    @Autowired
+    private RespostasIdempotentes respostasIdempotentes;
 
     @GetMapping("/{id}")
-    public ResponseEntity<PessoaDTO> consultarPorId(@PathVariable Long id) {
-        PessoaDTO response = pessoaService.consultarPorId(id);
-        return ResponseEntity.status(HttpStatus.OK).body(response);
+    public ResponseEntity<PessoaDTO> consultarPorId(@PathVariable Long id, @RequestParam(required = false) String expand) {
+        // o etag permite que o spring responda 304 Not Modified, sem serializar o corpo, quando o cliente já o tem
+        PessoaDTO response = expand == null ? pessoaService.consultarPorId(id) : pessoaService.consultarPorId(id, expand);
+        return ResponseEntity.status(HttpStatus.OK).eTag(Etags.de(response)).body(response);
     }
 
     @GetMapping
-    public ResponseEntity<Page<PessoaDTO>> consultarTodos(Pageable paginacao) {
-        Page<PessoaDTO> response = pessoaService.consultarTodos(paginacao);
+    public ResponseEntity<Page<PessoaDTO>> consultarTodos(Pageable paginacao, @RequestParam(required = false) String expand) {
+        Page<PessoaDTO> response = expand == null ? pessoaService.consultarTodos(paginacao) : pessoaService.consultarTodos(paginacao, expand);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<PessoasPorIdsDTO> consultarPorIds(@RequestParam List<Long> ids, @RequestParam(required = false) String after) {
+        // a consulta por ids não é paginada, então a combinação com um cursor é recusada em vez de ignorada
+        if (after != null) {
+            throw new BadRequestException("A consulta por ids não pode ser combinada com a paginação por cursor");
+        }
+        PessoasPorIdsDTO response = pessoaService.consultarPorIds(ids);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping(params = {"after", "!ids"})
+    public ResponseEntity<PaginaPorCursorDTO<PessoaDTO>> consultarTodosPorCursor(@RequestParam String after, Pageable paginacao,
+                                                                              @RequestParam(required = false) String expand) {
+        PaginaPorCursorDTO<PessoaDTO> response = expand == null
+                ? pessoaService.consultarTodosPorCursor(after, paginacao)
+                : pessoaService.consultarTodosPorCursor(after, paginacao, expand);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping("/nascimento")
+    public ResponseEntity<PaginaPorCursorDTO<PessoaDTO>> consultarPorFaixaDeNascimento(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(required = false) String after,
+            Pageable paginacao) {
+        PaginaPorCursorDTO<PessoaDTO> response = pessoaService.consultarPorFaixaDeNascimento(inicio, fim, after, paginacao);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping("/estatisticas")
+    public ResponseEntity<EstatisticasDTO> consultarEstatisticas() {
+        EstatisticasDTO response = estatisticasService.consultar();
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @PostMapping("/estatisticas/reconstrucao")
+    public ResponseEntity<EstatisticasDTO> reconstruirEstatisticas() {
+        EstatisticasDTO response = estatisticasService.reconstruir();
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping("/busca")
+    public ResponseEntity<Page<PessoaDTO>> buscarPorNome(@RequestParam String nome, Pageable paginacao) {
+        Page<PessoaDTO> response = pessoaService.buscarPorNome(nome, paginacao);
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
     @PostMapping
-    public ResponseEntity<PessoaDTO> criar(@RequestBody @Valid PessoaDTO pessoaDTO) {
-        PessoaDTO response = pessoaService.criar(pessoaDTO);
+    public ResponseEntity<PessoaDTO> criar(@RequestBody @Valid PessoaDTO pessoaDTO,
+                                       @RequestHeader(value = "Idempotency-Key", required = false) String chaveDeIdempotencia) {
+        // com a chave de idempotência, uma nova tentativa do cliente recebe a resposta da primeira sem criar outro registro
+        PessoaDTO response = respostasIdempotentes.executar("criar-pessoa", chaveDeIdempotencia, pessoaDTO, () -> pessoaService.criar(pessoaDTO));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -42,4 +123,46 @@ public class PessoaController {
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    @TransferenciaEmMassa
+    @PostMapping(value = "/importacao", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<RelatorioImportacaoDTO> importar(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoDoConteudo,
+                                                           InputStream corpo) throws IOException {
+        boolean csv = MediaType.parseMediaType(tipoDoConteudo).isCompatibleWith(TEXT_CSV);
+        RelatorioImportacaoDTO response = importacaoService.importarPessoas(corpo, csv);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @TransferenciaEmMassa
+    @GetMapping("/exportacao")
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(defaultValue = "ndjson") String formato,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacoesAceitas) {
+        if (!formato.equals("ndjson") && !formato.equals("csv")) {
+            throw new BadRequestException("Formato de exportação não suportado: " + formato);
+        }
+        boolean csv = formato.equals("csv");
+        boolean gzip = codificacoesAceitas != null && codificacoesAceitas.contains("gzip");
+
+        // o corpo é escrito diretamente na saída da resposta à medida que as linhas são lidas do banco
+        StreamingResponseBody response = saida -> {
+            if (gzip) {
+                GZIPOutputStream saidaCompactada = new GZIPOutputStream(saida, 64 * 1024);
+                exportarPara(saidaCompactada, csv);
+                saidaCompactada.finish();
+            } else {
+                exportarPara(saida, csv);
+            }
+        };
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK)
+                .contentType(csv ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return builder.body(response);
+    }
+
+    private void exportarPara(OutputStream saida, boolean csv) throws IOException {
+        if (csv) exportacaoService.exportarCsv(saida);
+        else exportacaoService.exportarNdjson(saida);
+    }
+
 }
@@ -0,0 +1,17 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class EstatisticasDTO {
+    private Long totalDePessoas;
+    private Map<Integer, Long> porAnoDeNascimento;
+    private Map<String, Long> porFaixaEtaria;
+    private Map<String, Long> porCidadePrincipal;
+}
@@ -0,0 +1,22 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+// linha plana da junção entre pessoas e endereços, lida diretamente do cursor da exportação. Os campos do endereço
+// são nulos quando a pessoa não possui nenhum
+@AllArgsConstructor
+@Getter
+public class LinhaDeExportacaoDTO {
+    private Long idPessoa;
+    private String nome;
+    private LocalDate dataDeNascimento;
+    private Long idEndereco;
+    private String logradouro;
+    private String cep;
+    private Integer numero;
+    private String cidade;
+    private Boolean principal;
+}
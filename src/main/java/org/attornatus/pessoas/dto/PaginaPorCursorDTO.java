@@ -0,0 +1,17 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class PaginaPorCursorDTO<T> {
+    private List<T> conteudo;
+    private Integer tamanho;
+    private Boolean temProximo;
+    private String proximo;
+}
@@ -0,0 +1,18 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class PessoaComEnderecoPrincipalDTO extends PessoaDTO {
+    private EnderecoDTO enderecoPrincipal;
+
+    public PessoaComEnderecoPrincipalDTO(Long id, String nome, LocalDate dataDeNascimento, EnderecoDTO enderecoPrincipal) {
+        super(id, nome, dataDeNascimento);
+        this.enderecoPrincipal = enderecoPrincipal;
+    }
+}
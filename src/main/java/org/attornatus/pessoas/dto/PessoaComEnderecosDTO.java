@@ -0,0 +1,19 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class PessoaComEnderecosDTO extends PessoaDTO {
+    private List<EnderecoDTO> enderecos;
+
+    public PessoaComEnderecosDTO(Long id, String nome, LocalDate dataDeNascimento, List<EnderecoDTO> enderecos) {
+        super(id, nome, dataDeNascimento);
+        this.enderecos = enderecos;
+    }
+}
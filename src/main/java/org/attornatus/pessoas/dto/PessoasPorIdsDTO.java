@@ -0,0 +1,15 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class PessoasPorIdsDTO {
+    private List<PessoaDTO> pessoas;
+    private List<Long> naoEncontrados;
+}
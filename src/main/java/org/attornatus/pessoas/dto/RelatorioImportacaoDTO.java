@@ -0,0 +1,16 @@
+package org.attornatus.pessoas.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class RelatorioImportacaoDTO {
+    private Long linhasProcessadas;
+    private Long importados;
+    private List<ErroImportacaoDTO> erros;
+}
@@ -0,0 +1,250 @@
+package org.attornatus.pessoas.escrita;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// gravação em grupo das criações de pessoas e endereços, habilitada por pessoas.escrita-agrupada.habilitada. As
+// requisições entram em uma fila limitada e uma única thread grava, em uma só transação, tudo o que chegar até
+// completar o lote ou fechar a janela de espera. Cada requisição aguarda o commit do seu lote e recebe a entidade já
+// com o id gerado. Com a fila cheia, a criação é recusada em vez de esperar
+@Component
+public class GravadorEmGrupo implements MeterBinder, InitializingBean, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(GravadorEmGrupo.class);
+
+    private final boolean habilitado;
+    private final int tamanhoDoLote;
+    private final Duration janela;
+    private final Duration esperaMaxima;
+    private final BlockingQueue<Pedido> fila;
+    private final Thread gravadora;
+    private volatile boolean encerrando;
+
+    // as requisições enfileiram sob a leitura e o encerramento é marcado sob a escrita. Assim, depois de marcado,
+    // nenhum pedido novo entra na fila, e os que entraram antes ainda são vistos pela thread ou pelo destroy
+    private final ReadWriteLock entrada = new ReentrantReadWriteLock();
+
+    // as métricas começam em um registro local e passam ao da aplicação quando ele é ligado
+    private Timer duracaoDoLote;
+    private DistributionSummary tamanhoDosLotes;
+    private Counter recusados;
+
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public GravadorEmGrupo(@Value("${pessoas.escrita-agrupada.habilitada:false}") boolean habilitado,
+                           @Value("${pessoas.escrita-agrupada.tamanho-da-fila:10000}") int tamanhoDaFila,
+                           @Value("${pessoas.escrita-agrupada.tamanho-do-lote:500}") int tamanhoDoLote,
+                           @Value("${pessoas.escrita-agrupada.janela:5ms}") Duration janela,
+                           @Value("${pessoas.escrita-agrupada.espera-maxima:30s}") Duration esperaMaxima) {
+        this.habilitado = habilitado;
+        this.tamanhoDoLote = tamanhoDoLote;
+        this.janela = janela;
+        this.esperaMaxima = esperaMaxima;
+        this.fila = new ArrayBlockingQueue<>(tamanhoDaFila);
+        bindTo(new SimpleMeterRegistry());
+
+        this.gravadora = Thread.ofPlatform().name("gravador-em-grupo").daemon().unstarted(this::gravarContinuamente);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public int tamanhoDaFila() {
+        return fila.size();
+    }
+
+    public Pessoa gravar(Pessoa pessoa) {
+        return aguardar(enfileirar(pessoa, null));
+    }
+
+    // o endereço é ligado à pessoa dentro da transação do lote, que já recebe o id da pessoa verificada pelo chamador
+    public Endereco gravar(Endereco endereco, Long idPessoa) {
+        return aguardar(enfileirar(endereco, idPessoa));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("pessoas.escrita.fila", fila, BlockingQueue::size)
+                .description("Criações aguardando a gravação em grupo")
+                .register(registry);
+        this.duracaoDoLote = Timer.builder("pessoas.escrita.lote")
+                .description("Tempo de gravação de cada lote, da transação ao commit")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.tamanhoDosLotes = DistributionSummary.builder("pessoas.escrita.lote.tamanho")
+                .description("Número de criações gravadas em cada lote")
+                .register(registry);
+        this.recusados = Counter.builder("pessoas.escrita.recusados")
+                .description("Criações recusadas por estarem com a fila cheia")
+                .register(registry);
+    }
+
+    // a thread só é iniciada depois que os repositórios e a transação foram injetados
+    @Override
+    public void afterPropertiesSet() {
+        if (habilitado) gravadora.start();
+    }
+
+    // ao encerrar a aplicação, a thread grava o que ainda estiver na fila antes de parar. O que sobrar depois da
+    // espera falha, para que nenhum chamador fique aguardando uma gravação que não vai acontecer
+    @Override
+    public void destroy() throws InterruptedException {
+        entrada.writeLock().lock();
+        try {
+            encerrando = true;
+        } finally {
+            entrada.writeLock().unlock();
+        }
+        if (gravadora.isAlive()) gravadora.join(esperaMaxima);
+
+        List<Pedido> pendentes = new ArrayList<>();
+        fila.drainTo(pendentes);
+        ServicoIndisponivelException falha = new ServicoIndisponivelException("A aplicação está sendo encerrada. Tente novamente em instantes", Duration.ofSeconds(1));
+        pendentes.forEach(pedido -> pedido.resultado().completeExceptionally(falha));
+    }
+
+
+    private Pedido enfileirar(Object entidade, Long idPessoa) {
+        entrada.readLock().lock();
+        try {
+            if (!habilitado || encerrando) {
+                throw new IllegalStateException("A gravação em grupo não está disponível");
+            }
+            Pedido pedido = new Pedido(entidade, idPessoa, new CompletableFuture<>());
+            if (!fila.offer(pedido)) {
+                recusados.increment();
+                throw new ServicoIndisponivelException("Muitas criações aguardando gravação. Tente novamente em instantes", Duration.ofSeconds(1));
+            }
+            return pedido;
+        } finally {
+            entrada.readLock().unlock();
+        }
+    }
+
+    // a espera é limitada para que uma falha na thread gravadora nunca prenda as requisições indefinidamente
+    @SuppressWarnings("unchecked")
+    private <T> T aguardar(Pedido pedido) {
+        try {
+            return (T) pedido.resultado().get(esperaMaxima.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) throw causa;
+            if (ex.getCause() instanceof Error causa) throw causa;
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ServicoIndisponivelException("A gravação não foi confirmada a tempo. Tente novamente em instantes", Duration.ofSeconds(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enquanto aguardava a gravação", ex);
+        }
+    }
+
+    private void gravarContinuamente() {
+        List<Pedido> lote = new ArrayList<>(tamanhoDoLote);
+        while (!encerrando || !fila.isEmpty()) {
+            try {
+                // espera o primeiro pedido e, a partir dele, junta os que chegarem até fechar o lote ou a janela
+                Pedido primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) continue;
+                lote.add(primeiro);
+                long limite = System.nanoTime() + janela.toNanos();
+                while (lote.size() < tamanhoDoLote) {
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) {
+                        fila.drainTo(lote, tamanhoDoLote - lote.size());
+                        break;
+                    }
+                    Pedido proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+                    if (proximo == null) break;
+                    lote.add(proximo);
+                }
+                gravarLote(lote);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                lote.forEach(pedido -> pedido.resultado().completeExceptionally(ex));
+                break;
+            } catch (Throwable ex) {
+                // qualquer falha, inclusive um Error, é entregue aos chamadores do lote, e a thread segue gravando
+                lote.forEach(pedido -> pedido.resultado().completeExceptionally(ex));
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void gravarLote(List<Pedido> lote) {
+        long inicio = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> lote.forEach(this::persistir));
+        } catch (RuntimeException ex) {
+            // uma criação inválida não pode derrubar as demais do lote, então cada uma é refeita em sua própria
+            // transação, e apenas as que falharem de novo recebem o erro
+            log.warn("Falha ao gravar um lote de {} criações, gravando-as individualmente", lote.size(), ex);
+            for (Pedido pedido : lote) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persistir(pedido));
+                    pedido.resultado().complete(pedido.entidade());
+                } catch (RuntimeException falha) {
+                    pedido.resultado().completeExceptionally(falha);
+                }
+            }
+            return;
+        } finally {
+            duracaoDoLote.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            tamanhoDosLotes.record(lote.size());
+        }
+
+        // só depois do commit os chamadores recebem as entidades, já com os ids gerados
+        lote.forEach(pedido -> pedido.resultado().complete(pedido.entidade()));
+    }
+
+    private void persistir(Pedido pedido) {
+        // uma nova tentativa individual recebe a entidade com o id atribuído pela tentativa em lote desfeita, que
+        // precisa ser descartado para que ela seja inserida de novo
+        if (pedido.entidade() instanceof Pessoa pessoa) {
+            pessoa.setId(null);
+            pessoaRepository.save(pessoa);
+        } else if (pedido.entidade() instanceof Endereco endereco) {
+            endereco.setId(null);
+            endereco.setPessoa(pessoaRepository.getReferenceById(pedido.idPessoa()));
+            enderecoRepository.save(endereco);
+        }
+    }
+
+    private record Pedido(Object entidade, Long idPessoa, CompletableFuture<Object> resultado) {
+    }
+}
@@ -0,0 +1,16 @@
+package org.attornatus.pessoas.exception;
+
+import java.time.Duration;
+
+public class ServicoIndisponivelException extends RuntimeException {
+    private final Duration tentarNovamenteEm;
+
+    public ServicoIndisponivelException(String message, Duration tentarNovamenteEm) {
+        super(message);
+        this.tentarNovamenteEm = tentarNovamenteEm;
+    }
+
+    public Duration getTentarNovamenteEm() {
+        return tentarNovamenteEm;
+    }
+}
@@ -0,0 +1,136 @@
+package org.attornatus.pessoas.indice;
+
+import org.attornatus.pessoas.dto.EstatisticasDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// contagens de pessoas por data de nascimento e por cidade do endereço principal, mantidas em memória a cada escrita
+// para que as estatísticas não precisem percorrer as tabelas. As contagens por ano e por faixa etária são derivadas
+// das contagens por data, que têm no máximo algumas dezenas de milhares de chaves, no momento da consulta
+@Component
+public class AgregadosDemograficos {
+    // limites inferiores das faixas etárias, em anos. Cada faixa vai até o início da seguinte
+    private static final int[] FAIXAS_ETARIAS = {0, 18, 30, 40, 50, 60};
+
+    private volatile Contagens contagens = new Contagens();
+    // alterações aplicadas enquanto uma reconstrução lê o banco, para serem refeitas sobre as contagens novas. Fica
+    // nula fora das reconstruções. As alterações usam a parte compartilhada da trava e a troca das contagens a parte
+    // exclusiva, para que nenhuma alteração caia entre a repetição e a troca
+    private Queue<Consumer<Contagens>> alteracoesDuranteAReconstrucao;
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+
+
+    public void registrarNascimento(LocalDate anterior, LocalDate atual) {
+        if (anterior != null && anterior.equals(atual)) return;
+        aplicar(contagens -> {
+            if (anterior != null) contagens.porDataDeNascimento.computeIfAbsent(anterior, data -> new AtomicLong()).decrementAndGet();
+            if (atual != null) contagens.porDataDeNascimento.computeIfAbsent(atual, data -> new AtomicLong()).incrementAndGet();
+        });
+    }
+
+    // troca a cidade do endereço principal da pessoa, descontando a cidade anterior, que só o próprio agregado conhece
+    public void definirCidadePrincipal(Long idPessoa, String cidadeNormalizada) {
+        aplicar(contagens -> contagens.cidadePrincipalPorPessoa.compute(idPessoa, (id, anterior) -> {
+            if (cidadeNormalizada.equals(anterior)) return anterior;
+            if (anterior != null) contagens.porCidadePrincipal.get(anterior).decrementAndGet();
+            contagens.porCidadePrincipal.computeIfAbsent(cidadeNormalizada, cidade -> new AtomicLong()).incrementAndGet();
+            return cidadeNormalizada;
+        }));
+    }
+
+    // substitui todas as contagens por outras calculadas a partir do banco. As alterações confirmadas enquanto o banco
+    // é lido continuam valendo para as contagens atuais e são refeitas sobre as novas antes da troca, para que não se
+    // percam. Só uma escrita confirmada antes da leitura, mas com o AposCommit executado depois do início da gravação,
+    // pode ser contada duas vezes, o que uma nova reconstrução corrige
+    public synchronized void reconstruir(Supplier<Map<LocalDate, Long>> porDataDeNascimento, Supplier<Map<Long, String>> cidadePrincipalPorPessoa) {
+        Queue<Consumer<Contagens>> alteracoes = new ConcurrentLinkedQueue<>();
+        trocar(() -> alteracoesDuranteAReconstrucao = alteracoes);
+        try {
+            Contagens novas = new Contagens();
+            porDataDeNascimento.get().forEach((data, total) -> novas.porDataDeNascimento.put(data, new AtomicLong(total)));
+            cidadePrincipalPorPessoa.get().forEach((idPessoa, cidade) -> {
+                novas.cidadePrincipalPorPessoa.put(idPessoa, cidade);
+                novas.porCidadePrincipal.computeIfAbsent(cidade, c -> new AtomicLong()).incrementAndGet();
+            });
+            trocar(() -> {
+                alteracoes.forEach(alteracao -> alteracao.accept(novas));
+                contagens = novas;
+            });
+        } finally {
+            trocar(() -> alteracoesDuranteAReconstrucao = null);
+        }
+    }
+
+    public EstatisticasDTO consultar(LocalDate hoje) {
+        Contagens contagens = this.contagens;
+
+        long total = 0;
+        Map<Integer, Long> porAno = new TreeMap<>();
+        for (Map.Entry<LocalDate, AtomicLong> entrada : contagens.porDataDeNascimento.entrySet()) {
+            long quantidade = entrada.getValue().get();
+            if (quantidade <= 0) continue;
+            total += quantidade;
+            porAno.merge(entrada.getKey().getYear(), quantidade, Long::sum);
+        }
+
+        // quem tem pelo menos "inicio" anos nasceu até hoje menos "inicio" anos, e quem ainda não chegou ao início da
+        // faixa seguinte nasceu depois de hoje menos esse número de anos
+        Map<String, Long> porFaixa = new LinkedHashMap<>();
+        for (int i = 0; i < FAIXAS_ETARIAS.length; i++) {
+            int inicio = FAIXAS_ETARIAS[i];
+            boolean ultima = i == FAIXAS_ETARIAS.length - 1;
+            Map<LocalDate, AtomicLong> nascimentos = ultima
+                    ? contagens.porDataDeNascimento.headMap(hoje.minusYears(inicio), true)
+                    : contagens.porDataDeNascimento.subMap(hoje.minusYears(FAIXAS_ETARIAS[i + 1]), false, hoje.minusYears(inicio), true);
+            String faixa = ultima ? inicio + "+" : inicio + "-" + (FAIXAS_ETARIAS[i + 1] - 1);
+            porFaixa.put(faixa, nascimentos.values().stream().mapToLong(AtomicLong::get).sum());
+        }
+
+        Map<String, Long> porCidade = new TreeMap<>();
+        contagens.porCidadePrincipal.forEach((cidade, quantidade) -> {
+            if (quantidade.get() > 0) porCidade.put(cidade, quantidade.get());
+        });
+
+        return new EstatisticasDTO(total, porAno, porFaixa, porCidade);
+    }
+
+
+    private void aplicar(Consumer<Contagens> alteracao) {
+        trava.readLock().lock();
+        try {
+            alteracao.accept(contagens);
+            if (alteracoesDuranteAReconstrucao != null) alteracoesDuranteAReconstrucao.add(alteracao);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private void trocar(Runnable troca) {
+        trava.writeLock().lock();
+        try {
+            troca.run();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+
+    private static class Contagens {
+        private final ConcurrentSkipListMap<LocalDate, AtomicLong> porDataDeNascimento = new ConcurrentSkipListMap<>();
+        private final ConcurrentHashMap<Long, String> cidadePrincipalPorPessoa = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, AtomicLong> porCidadePrincipal = new ConcurrentHashMap<>();
+    }
+}
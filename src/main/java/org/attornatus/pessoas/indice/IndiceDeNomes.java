@@ -0,0 +1,446 @@
+package org.attornatus.pessoas.indice;
+
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.util.Normalizacao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// índice em memória dos nomes das pessoas, para buscas por nome sem consultar o banco. Cada nome é normalizado, sem
+// acentos nem diferença entre maiúsculas e minúsculas, e quebrado em palavras. O vocabulário fica ordenado, então as
+// palavras que começam por um termo formam um intervalo contínuo dele, e cada palavra aponta para os nomes que a contêm
+// já na ordem do ranking. Os trechos do meio das palavras apontam para as palavras, e não para os nomes, de modo que
+// essa parte do índice cresce com o vocabulário e não com o número de pessoas. Uma busca percorre as listas do termo
+// mais seletivo nessa ordem, ou todos os nomes quando o termo abrange palavras demais, saltando direto para os nomes
+// que também estão nas listas dos outros termos, e para assim que nenhum nome restante pode entrar na página pedida
+@Component
+public class IndiceDeNomes {
+    // termos cujas listas somam até esse número de nomes são percorridos por inteiro, para que o total seja exato. Acima
+    // dele, a busca para ao completar a página e o total passa a ser estimado pela soma das listas do termo
+    private static final int LIMITE_DA_CONTAGEM_EXATA = 5_000;
+    // trechos mais curtos que isso só são encontrados no início das palavras
+    private static final int TAMANHO_MINIMO_DO_TRECHO = 3;
+    private static final int PONTUACAO_MAXIMA_POR_TERMO = 3;
+    // os outros termos com até esse número de palavras são cruzados com o guia pelas listas, saltando os nomes que não
+    // estão nelas. Acima disso, reposicionar tantas listas a cada salto custaria mais do que conferir cada candidato
+    private static final int LIMITE_DE_PALAVRAS_PARA_SALTOS = 64;
+
+    // entre nomes igualmente relevantes, os mais curtos vêm antes e, entre eles, a ordem alfabética
+    private static final Comparator<Entrada> ORDEM = (entrada, outra) -> {
+        int porTamanho = Integer.compare(entrada.nome().length(), outra.nome().length());
+        if (porTamanho != 0) return porTamanho;
+        int porNome = entrada.nome().compareTo(outra.nome());
+        return porNome != 0 ? porNome : entrada.id().compareTo(outra.id());
+    };
+    private static final Comparator<Candidato> RANKING = Comparator.comparingInt(Candidato::pontuacao).reversed()
+            .thenComparing(Candidato::entrada, ORDEM);
+
+    private final ConcurrentHashMap<Long, String> nomes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entrada> todos = new ConcurrentSkipListSet<>(ORDEM);
+    private final ConcurrentSkipListMap<String, Postagem> vocabulario = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Set<String>> trechos = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    private PessoaRepository pessoaRepository;
+
+
+    // carrega o índice com as pessoas já salvas antes que a aplicação seja dada como pronta. Pessoas criadas ou
+    // editadas enquanto ele é carregado não são sobrescritas pelo nome lido do banco
+    @EventListener(ApplicationStartedEvent.class)
+    @Transactional(readOnly = true)
+    public void construir() {
+        try (Stream<PessoaDTO> pessoas = pessoaRepository.listarNomes()) {
+            pessoas.forEach(pessoa -> indexar(pessoa.getId(), pessoa.getNome(), false));
+        }
+    }
+
+    public void atualizar(Long id, String nome) {
+        indexar(id, nome, true);
+    }
+
+    public int tamanho() {
+        return nomes.size();
+    }
+
+    // retorna os ids de uma página dos nomes que contêm todos os termos da busca, já ordenados pela relevância, e o
+    // total de nomes encontrados
+    public Resultado buscar(String busca, int pagina, int tamanhoDaPagina) {
+        List<String> termos = palavras(Normalizacao.texto(busca));
+        if (termos.isEmpty()) return new Resultado(List.of(), 0);
+
+        // o termo com menos nomes guia a busca, dando preferência aos de poucas palavras, que são percorridos pelas
+        // listas e não pelo índice inteiro. Os demais são cruzados com ele e conferidos contra o nome de cada candidato
+        Map<String, Termo> localizados = new HashMap<>();
+        for (String termo : termos) {
+            Termo atual = localizados.computeIfAbsent(termo, this::localizar);
+            if (atual.estimativa() == 0) return new Resultado(List.of(), 0);
+        }
+        Termo guia = Collections.min(localizados.values(), Comparator.comparing((Termo termo) -> !termo.saltavel())
+                .thenComparingLong(Termo::estimativa));
+        int pontuacaoMaximaDosOutros = -guia.pontuacaoMaxima();
+        for (String termo : termos) pontuacaoMaximaDosOutros += localizados.get(termo).pontuacaoMaxima();
+        List<Termo> cruzados = new ArrayList<>();
+        for (Termo termo : localizados.values()) {
+            if (termo != guia && termo.saltavel()) cruzados.add(termo);
+        }
+
+        // guarda apenas os melhores candidatos até o fim da página pedida, em um heap com o pior deles no topo. A página
+        // vem do cliente, então as posições são calculadas em long e limitadas ao número de nomes indexados
+        long fimDaPagina = ((long) pagina + 1) * tamanhoDaPagina;
+        int limite = (int) Math.max(1, Math.min(fimDaPagina, nomes.size()));
+        boolean contagemExata = guia.estimativa() <= LIMITE_DA_CONTAGEM_EXATA;
+        PriorityQueue<Candidato> melhores = new PriorityQueue<>(RANKING.reversed());
+        Set<Long> vistos = new HashSet<>();
+        long total = 0;
+        boolean interrompida = false;
+
+        // as faixas vêm da mais para a menos relevante para o termo guia, e cada uma em ordem de ranking. Um nome só
+        // pode superar o pior do heap se a faixa, somada ao máximo que os outros termos alcançam, chegar à pontuação dele
+        percurso:
+        for (Faixa faixa : guia.faixas()) {
+            if (faixa.tamanho() == 0) continue;
+            List<Sequencia> outras = cruzados.stream().<Sequencia>map(termo -> new Intercalacao(termo.postagens())).toList();
+            Iterator<Entrada> entradas = new Interseccao(percorrer(guia.termo(), faixa, contagemExata, limite), outras);
+            while (entradas.hasNext()) {
+                Entrada entrada = entradas.next();
+                if (!contagemExata && melhores.size() == limite
+                        && !podeSuperar(faixa.pontuacao() + pontuacaoMaximaDosOutros, entrada, melhores.peek())) {
+                    interrompida = true;
+                    break percurso;
+                }
+
+                // as listas podem conter o nome anterior de uma pessoa renomeada no meio da busca, e um mesmo nome pode
+                // aparecer pela lista de mais de uma palavra. Com um só termo, a faixa em que o nome aparece primeiro
+                // já é a pontuação dele
+                if (!entrada.nome().equals(nomes.get(entrada.id())) || !vistos.add(entrada.id())) continue;
+                int pontuacao = termos.size() == 1 ? faixa.pontuacao() : pontuar(palavras(entrada.nome()), termos);
+                if (pontuacao == 0) continue;
+
+                total++;
+                if (melhores.size() == limite && !podeSuperar(pontuacao, entrada, melhores.peek())) continue;
+                melhores.add(new Candidato(entrada, pontuacao));
+                if (melhores.size() > limite) melhores.poll();
+            }
+        }
+        if (interrompida) total = Math.max(total, guia.estimativa());
+
+        List<Candidato> ordenados = new ArrayList<>(melhores);
+        ordenados.sort(RANKING);
+        int inicio = (int) Math.min(ordenados.size(), (long) pagina * tamanhoDaPagina);
+        List<Long> ids = ordenados.subList(inicio, ordenados.size()).stream().map(candidato -> candidato.entrada().id()).toList();
+        return new Resultado(ids, total);
+    }
+
+
+    private void indexar(Long id, String nome, boolean substituir) {
+        String normalizado = Normalizacao.texto(nome);
+
+        // o compute serializa as alterações de uma mesma pessoa. Os leitores podem ver as listas no meio de uma
+        // alteração, mas conferem cada candidato contra o nome atual antes de devolvê-lo
+        nomes.compute(id, (chave, anterior) -> {
+            if (anterior != null && (!substituir || anterior.equals(normalizado))) return anterior;
+            if (anterior != null) {
+                Entrada antiga = new Entrada(id, anterior);
+                todos.remove(antiga);
+                for (String palavra : new LinkedHashSet<>(palavras(anterior))) {
+                    Postagem postagem = vocabulario.get(palavra);
+                    if (postagem != null) postagem.remover(antiga);
+                }
+            }
+            Entrada nova = new Entrada(id, normalizado);
+            todos.add(nova);
+            for (String palavra : new LinkedHashSet<>(palavras(normalizado))) {
+                vocabulario.computeIfAbsent(palavra, this::novaPalavra).adicionar(nova);
+            }
+            return normalizado;
+        });
+    }
+
+    // registra os trechos que começam no meio da palavra e têm o tamanho mínimo. As palavras ficam no vocabulário
+    // mesmo quando deixam de ter nomes, o que evita disputar a remoção com quem as acrescenta ao mesmo tempo
+    private Postagem novaPalavra(String palavra) {
+        for (int i = 1; i + TAMANHO_MINIMO_DO_TRECHO <= palavra.length(); i++) {
+            trechos.computeIfAbsent(palavra.substring(i), trecho -> ConcurrentHashMap.newKeySet()).add(palavra);
+        }
+        return new Postagem();
+    }
+
+    // separa as listas dos nomes que contêm o termo como palavra inteira, como início de palavra e, a partir de três
+    // letras, no meio de uma palavra
+    private Termo localizar(String termo) {
+        String fimDoIntervalo = termo + Character.MAX_VALUE;
+
+        Postagem exata = vocabulario.get(termo);
+        List<Postagem> prefixos = new ArrayList<>(vocabulario.subMap(termo, false, fimDoIntervalo, false).values());
+
+        List<Postagem> meios = new ArrayList<>();
+        if (termo.length() >= TAMANHO_MINIMO_DO_TRECHO) {
+            Set<String> vistas = new HashSet<>();
+            for (Set<String> palavrasDoTrecho : trechos.subMap(termo, true, fimDoIntervalo, false).values()) {
+                for (String palavra : palavrasDoTrecho) {
+                    Postagem postagem = vocabulario.get(palavra);
+                    if (postagem != null && !palavra.startsWith(termo) && vistas.add(palavra)) meios.add(postagem);
+                }
+            }
+        }
+
+        return new Termo(termo, List.of(
+                new Faixa(3, exata == null ? List.of() : List.of(exata)),
+                new Faixa(2, prefixos),
+                new Faixa(1, meios)));
+    }
+
+    // uma faixa com poucas palavras é percorrida intercalando as listas delas. Quando as palavras são tantas que a
+    // intercalação custaria mais do que achar a página entre todos os nomes, como em prefixos de uma letra, os nomes
+    // são percorridos em ordem e filtrados pela faixa
+    private Sequencia percorrer(String termo, Faixa faixa, boolean contagemExata, int limite) {
+        List<Postagem> postagens = faixa.postagens();
+        if (contagemExata || (long) postagens.size() * faixa.tamanho() <= (long) limite * nomes.size()) {
+            return new Intercalacao(postagens);
+        }
+        return new Filtrada(todos, entrada -> pontuar(palavras(entrada.nome()), termo) == faixa.pontuacao());
+    }
+
+    private static boolean podeSuperar(int pontuacaoMaxima, Entrada entrada, Candidato pior) {
+        if (pontuacaoMaxima != pior.pontuacao()) return pontuacaoMaxima > pior.pontuacao();
+        return ORDEM.compare(entrada, pior.entrada()) < 0;
+    }
+
+    // cada termo vale 3 pontos quando é uma palavra inteira do nome, 2 quando é o início de uma e 1 quando aparece no
+    // meio de uma. O nome que não contém algum dos termos fica com zero
+    private static int pontuar(List<String> palavrasDoNome, List<String> termos) {
+        int pontuacao = 0;
+        for (String termo : termos) {
+            int melhor = pontuar(palavrasDoNome, termo);
+            if (melhor == 0) return 0;
+            pontuacao += melhor;
+        }
+        return pontuacao;
+    }
+
+    private static int pontuar(List<String> palavrasDoNome, String termo) {
+        int melhor = 0;
+        for (String palavra : palavrasDoNome) {
+            if (palavra.equals(termo)) return PONTUACAO_MAXIMA_POR_TERMO;
+            else if (palavra.startsWith(termo)) melhor = 2;
+            else if (melhor == 0 && termo.length() >= TAMANHO_MINIMO_DO_TRECHO && palavra.contains(termo)) melhor = 1;
+        }
+        return melhor;
+    }
+
+    private static List<String> palavras(String normalizado) {
+        return normalizado.isEmpty() ? List.of() : List.of(normalizado.split(" "));
+    }
+
+    public record Resultado(List<Long> ids, long total) {
+    }
+
+    private record Entrada(Long id, String nome) {
+    }
+
+    private record Candidato(Entrada entrada, int pontuacao) {
+    }
+
+    private record Faixa(int pontuacao, List<Postagem> postagens, long tamanho) {
+        private Faixa(int pontuacao, List<Postagem> postagens) {
+            this(pontuacao, postagens, postagens.stream().mapToLong(postagem -> postagem.tamanho.get()).sum());
+        }
+    }
+
+    // a estimativa soma as listas de todas as faixas. Passa do número de nomes quando um nome tem mais de uma palavra
+    // com o termo, o que só acontece nas buscas interrompidas, em que o total já é uma estimativa
+    private record Termo(String termo, List<Faixa> faixas, long estimativa) {
+        private Termo(String termo, List<Faixa> faixas) {
+            this(termo, faixas, faixas.stream().mapToLong(Faixa::tamanho).sum());
+        }
+
+        private boolean saltavel() {
+            return faixas.stream().mapToInt(faixa -> faixa.postagens().size()).sum() <= LIMITE_DE_PALAVRAS_PARA_SALTOS;
+        }
+
+        private List<Postagem> postagens() {
+            return faixas.stream().flatMap(faixa -> faixa.postagens().stream()).toList();
+        }
+
+        // a maior pontuação que o termo pode dar a algum nome, para limitar o quanto os candidatos ainda podem subir
+        private int pontuacaoMaxima() {
+            for (Faixa faixa : faixas) {
+                if (faixa.tamanho() > 0) return faixa.pontuacao();
+            }
+            return 0;
+        }
+    }
+
+    // nomes que contêm uma palavra, na ordem do ranking. O tamanho é mantido à parte porque o do conjunto é linear
+    private static class Postagem {
+        private final ConcurrentSkipListSet<Entrada> entradas = new ConcurrentSkipListSet<>(ORDEM);
+        private final AtomicInteger tamanho = new AtomicInteger();
+
+        private void adicionar(Entrada entrada) {
+            if (entradas.add(entrada)) tamanho.incrementAndGet();
+        }
+
+        private void remover(Entrada entrada) {
+            if (entradas.remove(entrada)) tamanho.decrementAndGet();
+        }
+    }
+
+    // nomes em ordem de ranking, com a possibilidade de saltar adiante sem passar pelos nomes do meio
+    private interface Sequencia {
+        // a entrada atual, ou nulo quando a sequência terminou
+        Entrada atual();
+
+        void avancar();
+
+        // avança até a primeira entrada igual ou posterior ao alvo. Nunca volta
+        void saltarPara(Entrada alvo);
+    }
+
+    // junta as listas de várias palavras em uma só, na ordem do ranking, sem percorrê-las além do que for consumido. O
+    // salto reposiciona só as listas que ficaram para trás, por uma busca na própria lista
+    private static class Intercalacao implements Sequencia {
+        private final PriorityQueue<Cursor> cursores = new PriorityQueue<>(Comparator.comparing(Cursor::atual, ORDEM));
+
+        private Intercalacao(List<Postagem> postagens) {
+            for (Postagem postagem : postagens) posicionar(postagem, postagem.entradas.iterator());
+        }
+
+        @Override
+        public Entrada atual() {
+            Cursor cursor = cursores.peek();
+            return cursor == null ? null : cursor.atual();
+        }
+
+        @Override
+        public void avancar() {
+            Cursor cursor = cursores.poll();
+            if (cursor != null) posicionar(cursor.postagem(), cursor.entradas());
+        }
+
+        @Override
+        public void saltarPara(Entrada alvo) {
+            while (!cursores.isEmpty() && ORDEM.compare(cursores.peek().atual(), alvo) < 0) {
+                Postagem postagem = cursores.poll().postagem();
+                posicionar(postagem, postagem.entradas.tailSet(alvo, true).iterator());
+            }
+        }
+
+        private void posicionar(Postagem postagem, Iterator<Entrada> entradas) {
+            if (entradas.hasNext()) cursores.add(new Cursor(postagem, entradas, entradas.next()));
+        }
+
+        private record Cursor(Postagem postagem, Iterator<Entrada> entradas, Entrada atual) {
+        }
+    }
+
+    // os nomes de um conjunto ordenado que passam pelo filtro
+    private static class Filtrada implements Sequencia {
+        private final NavigableSet<Entrada> entradas;
+        private final Predicate<Entrada> filtro;
+        private Iterator<Entrada> iterador;
+        private Entrada atual;
+
+        private Filtrada(NavigableSet<Entrada> entradas, Predicate<Entrada> filtro) {
+            this.entradas = entradas;
+            this.filtro = filtro;
+            this.iterador = entradas.iterator();
+            avancar();
+        }
+
+        @Override
+        public Entrada atual() {
+            return atual;
+        }
+
+        @Override
+        public void avancar() {
+            atual = null;
+            while (iterador.hasNext()) {
+                Entrada entrada = iterador.next();
+                if (filtro.test(entrada)) {
+                    atual = entrada;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void saltarPara(Entrada alvo) {
+            if (atual == null || ORDEM.compare(atual, alvo) >= 0) return;
+            iterador = entradas.tailSet(alvo, true).iterator();
+            avancar();
+        }
+    }
+
+    // os nomes da sequência guia que também estão em todas as outras. Quando uma das outras está adiante, a guia salta
+    // direto para o nome dela, sem percorrer os do meio
+    private static class Interseccao implements Iterator<Entrada> {
+        private final Sequencia guia;
+        private final List<Sequencia> outras;
+        private boolean alinhada;
+        private boolean esgotada;
+
+        private Interseccao(Sequencia guia, List<Sequencia> outras) {
+            this.guia = guia;
+            this.outras = outras;
+        }
+
+        @Override
+        public boolean hasNext() {
+            alinhar();
+            return !esgotada && guia.atual() != null;
+        }
+
+        @Override
+        public Entrada next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Entrada atual = guia.atual();
+            guia.avancar();
+            alinhada = false;
+            return atual;
+        }
+
+        private void alinhar() {
+            if (alinhada) return;
+            alinhada = true;
+            alinhamento:
+            while (guia.atual() != null) {
+                for (Sequencia outra : outras) {
+                    outra.saltarPara(guia.atual());
+                    if (outra.atual() == null) {
+                        esgotada = true;
+                        return;
+                    }
+                    if (ORDEM.compare(outra.atual(), guia.atual()) > 0) {
+                        guia.saltarPara(outra.atual());
+                        continue alinhamento;
+                    }
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.attornatus.pessoas.metricas;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// expõe as estatísticas do hibernate (habilitadas por hibernate.generate_statistics) com os mesmos nomes usados pelo
+// módulo hibernate-micrometer, que não está disponível no repositório de dependências do projeto
+@Component
+public class HibernateMetricas implements MeterBinder {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        contador(registry, estatisticas, "hibernate.sessions.open", "Sessões abertas", Statistics::getSessionOpenCount);
+        contador(registry, estatisticas, "hibernate.transactions", "Transações concluídas", Statistics::getTransactionCount);
+        contador(registry, estatisticas, "hibernate.flushes", "Flushes executados", Statistics::getFlushCount);
+        contador(registry, estatisticas, "hibernate.statements", "Statements preparados", Statistics::getPrepareStatementCount);
+        contador(registry, estatisticas, "hibernate.optimistic.failures", "Falhas de lock otimista", Statistics::getOptimisticFailureCount);
+
+        contador(registry, estatisticas, "hibernate.query.executions", "Consultas executadas", Statistics::getQueryExecutionCount);
+        TimeGauge.builder("hibernate.query.executions.max", estatisticas, TimeUnit.MILLISECONDS, Statistics::getQueryExecutionMaxTime)
+                .description("Tempo da consulta mais lenta")
+                .register(registry);
+
+        contador(registry, estatisticas, "hibernate.entities.loads", "Entidades carregadas", Statistics::getEntityLoadCount);
+        contador(registry, estatisticas, "hibernate.entities.fetches", "Entidades buscadas sob demanda", Statistics::getEntityFetchCount);
+        contador(registry, estatisticas, "hibernate.entities.inserts", "Entidades inseridas", Statistics::getEntityInsertCount);
+        contador(registry, estatisticas, "hibernate.entities.updates", "Entidades alteradas", Statistics::getEntityUpdateCount);
+        contador(registry, estatisticas, "hibernate.entities.deletes", "Entidades removidas", Statistics::getEntityDeleteCount);
+        contador(registry, estatisticas, "hibernate.collections.loads", "Coleções carregadas", Statistics::getCollectionLoadCount);
+
+        FunctionCounter.builder("hibernate.second.level.cache.requests", estatisticas, Statistics::getSecondLevelCacheHitCount)
+                .tag("result", "hit")
+                .description("Consultas ao cache de segundo nível")
+                .register(registry);
+        FunctionCounter.builder("hibernate.second.level.cache.requests", estatisticas, Statistics::getSecondLevelCacheMissCount)
+                .tag("result", "miss")
+                .description("Consultas ao cache de segundo nível")
+                .register(registry);
+        contador(registry, estatisticas, "hibernate.second.level.cache.puts", "Entradas gravadas no cache de segundo nível", Statistics::getSecondLevelCachePutCount);
+        contador(registry, estatisticas, "hibernate.connections.obtained", "Conexões obtidas pelo hibernate", Statistics::getConnectCount);
+    }
+
+    private void contador(MeterRegistry registry, Statistics estatisticas, String nome, String descricao,
+                          ToDoubleFunction<Statistics> valor) {
+        FunctionCounter.builder(nome, estatisticas, valor).description(descricao).register(registry);
+    }
+}
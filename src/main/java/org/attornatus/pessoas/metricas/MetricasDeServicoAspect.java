@@ -0,0 +1,55 @@
+package org.attornatus.pessoas.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// mede o tempo de cada método público dos services, separando o tempo da regra de negócio do tempo gasto no tomcat e
+// na serialização (http.server.requests) e nas consultas (spring.data.repository.invocations). O resultado segue as
+// exceções tratadas pelo ExceptionHandlerAdvice, para que os 404, 400 e 503 apareçam separados das falhas inesperadas
+@Aspect
+@Component
+public class MetricasDeServicoAspect {
+
+    public static final String METRICA = "pessoas.servico";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Around("within(org.attornatus.pessoas.service..*) && execution(public * *(..))")
+    public Object medir(ProceedingJoinPoint ponto) throws Throwable {
+        Timer.Sample amostra = Timer.start(registry);
+        String resultado = "SUCCESS";
+        String excecao = "none";
+        try {
+            return ponto.proceed();
+        } catch (Throwable ex) {
+            resultado = resultadoDa(ex);
+            excecao = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            amostra.stop(Timer.builder(METRICA)
+                    .description("Tempo de execução dos métodos dos services")
+                    .tag("classe", ponto.getSignature().getDeclaringType().getSimpleName())
+                    .tag("metodo", ponto.getSignature().getName())
+                    .tag("outcome", resultado)
+                    .tag("exception", excecao)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private String resultadoDa(Throwable ex) {
+        if (ex instanceof EntityNotFoundException) return "NOT_FOUND";
+        if (ex instanceof BadRequestException) return "BAD_REQUEST";
+        if (ex instanceof ServicoIndisponivelException) return "UNAVAILABLE";
+        return "ERROR";
+    }
+}
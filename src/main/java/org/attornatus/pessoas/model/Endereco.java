@@ -1,20 +1,25 @@
 package org.attornatus.pessoas.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.attornatus.pessoas.util.Normalizacao;
 
 @Entity
-@Table(name = "enderecos")
+@Table(name = "enderecos", indexes = {
+        @Index(name = "idx_enderecos_id_pessoa", columnList = "id_pessoa"),
+        // as buscas por cidade e por faixa de cep percorrem estes índices na ordem da paginação, terminada pelo id
+        @Index(name = "idx_enderecos_cidade_normalizada", columnList = "cidade_normalizada, id"),
+        @Index(name = "idx_enderecos_cep_normalizado", columnList = "cep_normalizado, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Endereco {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_enderecos")
+    @SequenceGenerator(name = "seq_enderecos", sequenceName = "seq_enderecos", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -32,7 +37,31 @@ public class Endereco {
     @Column(nullable = false)
     private Boolean principal;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_pessoa")
     private Pessoa pessoa;
+
+    // cópias da cidade e do cep na forma usada pelas buscas, mantidas a cada inserção e alteração
+    @Column(name = "cidade_normalizada", nullable = false)
+    private String cidadeNormalizada;
+
+    @Column(name = "cep_normalizado", nullable = false)
+    private String cepNormalizado;
+
+    public Endereco(Long id, String logradouro, String cep, Integer numero, String cidade, Boolean principal, Pessoa pessoa) {
+        this.id = id;
+        this.logradouro = logradouro;
+        this.cep = cep;
+        this.numero = numero;
+        this.cidade = cidade;
+        this.principal = principal;
+        this.pessoa = pessoa;
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void normalizar() {
+        this.cidadeNormalizada = Normalizacao.texto(cidade);
+        this.cepNormalizado = Normalizacao.cep(cep);
+    }
 }
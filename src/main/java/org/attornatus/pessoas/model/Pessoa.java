@@ -10,14 +10,19 @@ import lombok.Setter;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "tb_pessoas")
+@Table(name = "tb_pessoas", indexes = {
+        @Index(name = "idx_pessoas_nome_id", columnList = "nome, id_pessoa"),
+        @Index(name = "idx_pessoas_data_de_nascimento_id", columnList = "dataDeNascimento, id_pessoa")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pessoa {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // sequence com alocação em blocos, permitindo que o hibernate agrupe os inserts em lotes jdbc
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_pessoas")
+    @SequenceGenerator(name = "seq_pessoas", sequenceName = "seq_pessoas", allocationSize = 50)
     @Column(name = "id_pessoa")
     private Long id;
 
@@ -0,0 +1,28 @@
+package org.attornatus.pessoas.reativo;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.ReactiveSortHandlerMethodArgumentResolver;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+@Configuration
+@Profile(PessoasReativoApplication.PERFIL)
+public class ConfiguracaoWebReativa implements WebFluxConfigurer {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        // o tomcat também está no classpath por causa da versão servlet e teria preferência. A variante reativa
+        // precisa do netty, com seu laço de eventos, para não depender de uma thread por requisição
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        // permite receber Pageable e Sort nos controllers, com os mesmos parâmetros page, size e sort da versão servlet
+        configurer.addCustomResolver(new ReactivePageableHandlerMethodArgumentResolver(), new ReactiveSortHandlerMethodArgumentResolver());
+    }
+}
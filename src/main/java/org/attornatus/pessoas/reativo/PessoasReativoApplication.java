@@ -0,0 +1,23 @@
+package org.attornatus.pessoas.reativo;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Profile;
+
+// variante não bloqueante da api, com as mesmas rotas e dtos, servida pelo webflux sobre r2dbc. Só os componentes
+// deste pacote são carregados, e o perfil "reativo" troca o tipo da aplicação e as autoconfigurações de banco
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan
+@Profile(PessoasReativoApplication.PERFIL)
+public class PessoasReativoApplication {
+
+    public static final String PERFIL = "reativo";
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(PessoasReativoApplication.class).profiles(PERFIL).run(args);
+    }
+
+}
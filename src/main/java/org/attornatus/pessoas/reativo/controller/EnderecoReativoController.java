@@ -0,0 +1,52 @@
+package org.attornatus.pessoas.reativo.controller;
+
+import jakarta.validation.Valid;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.IdEnderecoDTO;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.attornatus.pessoas.reativo.service.EnderecoReativoService;
+import org.attornatus.pessoas.util.Etags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("endereco")
+@Profile(PessoasReativoApplication.PERFIL)
+public class EnderecoReativoController {
+
+    @Autowired
+    private EnderecoReativoService enderecoService;
+
+    @PostMapping
+    public Mono<ResponseEntity<EnderecoDTO>> criar(@RequestBody @Valid EnderecoDTO enderecoDTO) {
+        return enderecoService.criar(enderecoDTO)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+    }
+
+    @GetMapping("/{idPessoa}")
+    public Mono<ResponseEntity<List<EnderecoDTO>>> buscarEnderecosDaPessoa(@PathVariable Long idPessoa) {
+        return enderecoService.buscarEnderecosDaPessoa(idPessoa).collectList()
+                .map(response -> ResponseEntity.status(HttpStatus.OK).eTag(Etags.de(response)).body(response));
+    }
+
+    // transmite os endereços um por linha quando o cliente aceita ndjson
+    @GetMapping(value = "/{idPessoa}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EnderecoDTO> transmitirEnderecosDaPessoa(@PathVariable Long idPessoa) {
+        return enderecoService.buscarEnderecosDaPessoa(idPessoa);
+    }
+
+    @PutMapping("/{idPessoa}")
+    public Mono<ResponseEntity<EnderecoDTO>> escolherEnderecoPrincipal(@PathVariable Long idPessoa, @RequestBody IdEnderecoDTO idEnderecoDTO) {
+        return enderecoService.escolherEnderecoPrincipal(idPessoa, idEnderecoDTO.getIdEndereco())
+                .map(response -> ResponseEntity.status(HttpStatus.OK).body(response));
+    }
+
+}
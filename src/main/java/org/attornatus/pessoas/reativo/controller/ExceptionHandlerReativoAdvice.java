@@ -0,0 +1,81 @@
+package org.attornatus.pessoas.reativo.controller;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// mesmo formato de erro da versão servlet, adaptado às exceções e à requisição do webflux
+@ControllerAdvice
+@Profile(PessoasReativoApplication.PERFIL)
+public class ExceptionHandlerReativoAdvice {
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<StandardError> handleWebExchangeBindException(WebExchangeBindException ex, ServerHttpRequest request) {
+        List<String> errors = ex.getBindingResult().getAllErrors().stream().map(error -> {
+            return error.getDefaultMessage();
+        }).toList();
+
+        StandardError response = new StandardError(
+                LocalDateTime.now(),
+                400,
+                "Bad Request",
+                request.getPath().value(),
+                errors
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<StandardError> handleEntityNotFoundException(EntityNotFoundException ex, ServerHttpRequest request) {
+        StandardError response = new StandardError(
+                LocalDateTime.now(),
+                404,
+                "Not Found",
+                request.getPath().value(),
+                List.of(ex.getMessage())
+        );
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<StandardError> handleBadRequestException(BadRequestException ex, ServerHttpRequest request) {
+        StandardError response = new StandardError(
+                LocalDateTime.now(),
+                400,
+                "Bad Request",
+                request.getPath().value(),
+                List.of(ex.getMessage())
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    private class StandardError {
+        private LocalDateTime timestamp;
+        private Integer status;
+        private String error;
+        private String path;
+        private List<String> message;
+    }
+}
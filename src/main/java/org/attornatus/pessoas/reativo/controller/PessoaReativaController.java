@@ -0,0 +1,59 @@
+package org.attornatus.pessoas.reativo.controller;
+
+import jakarta.validation.Valid;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.attornatus.pessoas.reativo.service.PessoaReativaService;
+import org.attornatus.pessoas.util.Etags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("pessoa")
+@Profile(PessoasReativoApplication.PERFIL)
+public class PessoaReativaController {
+
+    @Autowired
+    private PessoaReativaService pessoaService;
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<PessoaDTO>> consultarPorId(@PathVariable Long id) {
+        return pessoaService.consultarPorId(id)
+                .map(response -> ResponseEntity.status(HttpStatus.OK).eTag(Etags.de(response)).body(response));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Page<PessoaDTO>>> consultarTodos(Pageable paginacao) {
+        return pessoaService.consultarTodos(paginacao)
+                .map(response -> ResponseEntity.status(HttpStatus.OK).body(response));
+    }
+
+    // quando o cliente aceita ndjson, a listagem completa é transmitida uma pessoa por linha, respeitando o ritmo de
+    // leitura do cliente em vez de montar a resposta inteira em memória
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PessoaDTO> transmitirTodos(Sort ordenacao) {
+        return pessoaService.transmitirTodos(ordenacao);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<PessoaDTO>> criar(@RequestBody @Valid PessoaDTO pessoaDTO) {
+        return pessoaService.criar(pessoaDTO)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<PessoaDTO>> editar(@PathVariable Long id, @RequestBody @Valid PessoaDTO pessoaDTO) {
+        return pessoaService.editar(id, pessoaDTO)
+                .map(response -> ResponseEntity.status(HttpStatus.OK).body(response));
+    }
+
+}
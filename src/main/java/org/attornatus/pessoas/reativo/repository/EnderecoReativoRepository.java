@@ -0,0 +1,81 @@
+package org.attornatus.pessoas.reativo.repository;
+
+import io.r2dbc.spi.Readable;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile(PessoasReativoApplication.PERFIL)
+public class EnderecoReativoRepository {
+    private static final String COLUNAS = "select id, logradouro, cep, numero, cidade, principal, id_pessoa from enderecos";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+
+    public Mono<EnderecoDTO> inserir(EnderecoDTO enderecoDTO) {
+        return databaseClient.sql("insert into enderecos (logradouro, cep, numero, cidade, principal, id_pessoa) values (:logradouro, :cep, :numero, :cidade, false, :idPessoa)")
+                .bind("logradouro", enderecoDTO.getLogradouro())
+                .bind("cep", enderecoDTO.getCep())
+                .bind("numero", enderecoDTO.getNumero())
+                .bind("cidade", enderecoDTO.getCidade())
+                .bind("idPessoa", enderecoDTO.getIdPessoa())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(linha -> new EnderecoDTO(linha.get("id", Long.class), enderecoDTO.getLogradouro(), enderecoDTO.getCep(),
+                        enderecoDTO.getNumero(), enderecoDTO.getCidade(), false, enderecoDTO.getIdPessoa()))
+                .one();
+    }
+
+    public Mono<EnderecoDTO> buscarPorId(Long id) {
+        return databaseClient.sql(COLUNAS + " where id = :id")
+                .bind("id", id)
+                .map(EnderecoReativoRepository::paraDTO)
+                .one();
+    }
+
+    public Mono<Boolean> existe(Long id) {
+        return databaseClient.sql("select 1 from enderecos where id = :id")
+                .bind("id", id)
+                .map(linha -> true)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    public Flux<EnderecoDTO> buscarPorIdPessoa(Long idPessoa) {
+        return databaseClient.sql(COLUNAS + " where id_pessoa = :idPessoa order by id")
+                .bind("idPessoa", idPessoa)
+                .map(EnderecoReativoRepository::paraDTO)
+                .all();
+    }
+
+    public Mono<Long> desmarcarTodos(Long idPessoa) {
+        return databaseClient.sql("update enderecos set principal = false where id_pessoa = :idPessoa")
+                .bind("idPessoa", idPessoa)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> marcarPrincipal(Long idPessoa, Long idEndereco) {
+        return databaseClient.sql("update enderecos set principal = true where id = :idEndereco and id_pessoa = :idPessoa")
+                .bind("idEndereco", idEndereco)
+                .bind("idPessoa", idPessoa)
+                .fetch().rowsUpdated();
+    }
+
+
+    private static EnderecoDTO paraDTO(Readable linha) {
+        return new EnderecoDTO(
+                linha.get("id", Long.class),
+                linha.get("logradouro", String.class),
+                linha.get("cep", String.class),
+                linha.get("numero", Integer.class),
+                linha.get("cidade", String.class),
+                linha.get("principal", Boolean.class),
+                linha.get("id_pessoa", Long.class));
+    }
+}
@@ -0,0 +1,107 @@
+package org.attornatus.pessoas.reativo.repository;
+
+import io.r2dbc.spi.Readable;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile(PessoasReativoApplication.PERFIL)
+public class PessoaReativaRepository {
+    private static final String COLUNAS = "select id_pessoa, nome, data_de_nascimento from tb_pessoas";
+    // campos dos dtos pelos quais a listagem pode ser ordenada e as colunas correspondentes
+    private static final Map<String, String> COLUNAS_ORDENAVEIS = Map.of(
+            "id", "id_pessoa",
+            "nome", "nome",
+            "dataDeNascimento", "data_de_nascimento");
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+
+    public Mono<PessoaDTO> inserir(PessoaDTO pessoaDTO) {
+        return databaseClient.sql("insert into tb_pessoas (nome, data_de_nascimento) values (:nome, :dataDeNascimento)")
+                .bind("nome", pessoaDTO.getNome())
+                .bind("dataDeNascimento", pessoaDTO.getDataDeNascimento())
+                .filter(statement -> statement.returnGeneratedValues("id_pessoa"))
+                .map(linha -> new PessoaDTO(linha.get("id_pessoa", Long.class), pessoaDTO.getNome(), pessoaDTO.getDataDeNascimento()))
+                .one();
+    }
+
+    public Mono<Long> atualizar(Long id, String nome, LocalDate dataDeNascimento) {
+        // campos nulos mantêm o valor atual, como na edição parcial da versão servlet
+        DatabaseClient.GenericExecuteSpec spec = databaseClient
+                .sql("update tb_pessoas set nome = coalesce(:nome, nome), data_de_nascimento = coalesce(:dataDeNascimento, data_de_nascimento) where id_pessoa = :id")
+                .bind("id", id);
+        spec = nome != null ? spec.bind("nome", nome) : spec.bindNull("nome", String.class);
+        spec = dataDeNascimento != null ? spec.bind("dataDeNascimento", dataDeNascimento) : spec.bindNull("dataDeNascimento", LocalDate.class);
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<PessoaDTO> buscarPorId(Long id) {
+        return databaseClient.sql(COLUNAS + " where id_pessoa = :id")
+                .bind("id", id)
+                .map(PessoaReativaRepository::paraDTO)
+                .one();
+    }
+
+    public Mono<Boolean> existe(Long id) {
+        return databaseClient.sql("select 1 from tb_pessoas where id_pessoa = :id")
+                .bind("id", id)
+                .map(linha -> true)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    public Flux<PessoaDTO> buscarPagina(Sort ordenacao, long deslocamento, int limite) {
+        return databaseClient.sql(COLUNAS + " order by " + ordenar(ordenacao) + " limit :limite offset :deslocamento")
+                .bind("limite", limite)
+                .bind("deslocamento", deslocamento)
+                .map(PessoaReativaRepository::paraDTO)
+                .all();
+    }
+
+    public Mono<Long> contar() {
+        return databaseClient.sql("select count(*) from tb_pessoas")
+                .map(linha -> linha.get(0, Long.class))
+                .one();
+    }
+
+    public Flux<PessoaDTO> buscarTodas(Sort ordenacao) {
+        // as linhas são emitidas conforme a demanda do assinante, sem materializar o resultado inteiro
+        return databaseClient.sql(COLUNAS + " order by " + ordenar(ordenacao))
+                .map(PessoaReativaRepository::paraDTO)
+                .all();
+    }
+
+
+    private static String ordenar(Sort ordenacao) {
+        // apenas colunas conhecidas entram no sql. O id sempre desempata para que a ordem seja estável entre páginas
+        String ordem = ordenacao.stream().map(campo -> {
+            String coluna = COLUNAS_ORDENAVEIS.get(campo.getProperty());
+            if (coluna == null) {
+                throw new BadRequestException("Não é possível ordenar pelo campo " + campo.getProperty());
+            }
+            return coluna + (campo.isAscending() ? " asc" : " desc");
+        }).collect(Collectors.joining(", "));
+        return ordem.isEmpty() ? "id_pessoa" : ordem + ", id_pessoa";
+    }
+
+    private static PessoaDTO paraDTO(Readable linha) {
+        return new PessoaDTO(
+                linha.get("id_pessoa", Long.class),
+                linha.get("nome", String.class),
+                linha.get("data_de_nascimento", LocalDate.class));
+    }
+}
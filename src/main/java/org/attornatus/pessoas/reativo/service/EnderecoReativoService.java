@@ -0,0 +1,71 @@
+package org.attornatus.pessoas.reativo.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.attornatus.pessoas.reativo.repository.EnderecoReativoRepository;
+import org.attornatus.pessoas.reativo.repository.PessoaReativaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile(PessoasReativoApplication.PERFIL)
+public class EnderecoReativoService {
+
+    @Autowired
+    private EnderecoReativoRepository enderecoRepository;
+    @Autowired
+    private PessoaReativaRepository pessoaRepository;
+
+
+    public Mono<EnderecoDTO> criar(EnderecoDTO enderecoDTO) {
+        // verifica se a pessoa à qual pertence o endereço existe e só então salva o endereço, que nasce não principal
+        return pessoaRepository.existe(enderecoDTO.getIdPessoa())
+                .flatMap(existe -> existe
+                        ? enderecoRepository.inserir(enderecoDTO)
+                        : pessoaNaoEncontrada(enderecoDTO.getIdPessoa()));
+    }
+
+
+    public Flux<EnderecoDTO> buscarEnderecosDaPessoa(Long idPessoa) {
+        // emite os endereços da pessoa conforme a demanda. Uma lista vazia pode significar que a pessoa não existe,
+        // então só nesse caso verifica sua existência, emitindo uma exceção caso não haja
+        return enderecoRepository.buscarPorIdPessoa(idPessoa)
+                .switchIfEmpty(pessoaRepository.existe(idPessoa)
+                        .flatMapMany(existe -> existe ? Flux.<EnderecoDTO>empty() : EnderecoReativoService.<EnderecoDTO>pessoaNaoEncontrada(idPessoa).flux()));
+    }
+
+
+    @Transactional
+    public Mono<EnderecoDTO> escolherEnderecoPrincipal(Long idPessoa, Long idEndereco) {
+        // mesma estratégia da versão servlet: desmarca todos os endereços da pessoa, serializando requisições
+        // concorrentes nas mesmas linhas, e marca o escolhido. Caso nenhum seja marcado, descobre o motivo e emite
+        // uma exceção, o que desfaz também a alteração anterior
+        return enderecoRepository.desmarcarTodos(idPessoa)
+                .then(enderecoRepository.marcarPrincipal(idPessoa, idEndereco))
+                .flatMap(marcados -> marcados > 0
+                        ? enderecoRepository.buscarPorId(idEndereco)
+                        : motivoDaFalha(idPessoa, idEndereco));
+    }
+
+
+    private Mono<EnderecoDTO> motivoDaFalha(Long idPessoa, Long idEndereco) {
+        return pessoaRepository.existe(idPessoa).flatMap(pessoaExiste -> {
+            if (!pessoaExiste) {
+                return pessoaNaoEncontrada(idPessoa);
+            }
+            return enderecoRepository.existe(idEndereco).flatMap(enderecoExiste -> Mono.error(enderecoExiste
+                    ? new BadRequestException("Este endereço não pertence à pessoa informada")
+                    : new EntityNotFoundException("Não existe nenhum endereco com o id " + idEndereco)));
+        });
+    }
+
+    private static <T> Mono<T> pessoaNaoEncontrada(Long idPessoa) {
+        return Mono.error(() -> new EntityNotFoundException("Não existe nenhuma pessoa com o id " + idPessoa));
+    }
+}
@@ -0,0 +1,60 @@
+package org.attornatus.pessoas.reativo.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.reativo.PessoasReativoApplication;
+import org.attornatus.pessoas.reativo.repository.PessoaReativaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile(PessoasReativoApplication.PERFIL)
+public class PessoaReativaService {
+
+    @Autowired
+    private PessoaReativaRepository pessoaRepository;
+
+
+    public Mono<PessoaDTO> criar(PessoaDTO pessoaDTO) {
+        // salva a pessoa no banco de dados e retorna o dto já com o id gerado
+        return pessoaRepository.inserir(pessoaDTO);
+    }
+
+
+    public Mono<PessoaDTO> consultarPorId(Long id) {
+        // busca a pessoa no banco de dados. Caso não haja, emite uma exceção
+        return pessoaRepository.buscarPorId(id).switchIfEmpty(naoEncontrada(id));
+    }
+
+    public Mono<Page<PessoaDTO>> consultarTodos(Pageable paginacao) {
+        // busca a página e o total em paralelo e os junta no mesmo formato de página da versão servlet
+        return Mono.zip(
+                pessoaRepository.buscarPagina(paginacao.getSort(), paginacao.getOffset(), paginacao.getPageSize()).collectList(),
+                pessoaRepository.contar()
+        ).map(pagina -> new PageImpl<>(pagina.getT1(), paginacao, pagina.getT2()));
+    }
+
+    public Flux<PessoaDTO> transmitirTodos(Sort ordenacao) {
+        // emite todas as pessoas na ordem pedida, no ritmo em que o cliente consome a resposta
+        return pessoaRepository.buscarTodas(ordenacao);
+    }
+
+
+    public Mono<PessoaDTO> editar(Long id, PessoaDTO pessoaDTO) {
+        // altera apenas os campos com novos valores informados. Caso a pessoa não exista, emite uma exceção
+        return pessoaRepository.atualizar(id, pessoaDTO.getNome(), pessoaDTO.getDataDeNascimento())
+                .flatMap(alteradas -> alteradas == 0 ? naoEncontrada(id) : pessoaRepository.buscarPorId(id));
+    }
+
+
+    private static <T> Mono<T> naoEncontrada(Long id) {
+        return Mono.error(() -> new EntityNotFoundException("Não existe nenhuma pessoa com o id " + id));
+    }
+}
@@ -1,12 +1,58 @@
 package org.attornatus.pessoas.repository;
 
+import jakarta.persistence.QueryHint;
+import org.attornatus.pessoas.dto.EnderecoDTO;
 import org.attornatus.pessoas.model.Endereco;
 import org.attornatus.pessoas.model.Pessoa;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface EnderecoRepository extends JpaRepository<Endereco, Long> {
+public interface EnderecoRepository extends JpaRepository<Endereco, Long>, EnderecoRepositoryCustom {
     List<Endereco> findEnderecosByPessoa(Pessoa pessoa);
+
+    @Transactional
+    @Modifying
+    @Query("update Endereco e set e.principal = false where e.pessoa.id in :idsPessoas and e.principal = true")
+    int desmarcarPrincipais(@Param("idsPessoas") Collection<Long> idsPessoas);
+
+    @Modifying
+    @Query("update Endereco e set e.principal = false where e.pessoa.id = :idPessoa")
+    int desmarcarTodos(@Param("idPessoa") Long idPessoa);
+
+    @Modifying
+    @Query("update Endereco e set e.principal = true where e.id = :idEndereco and e.pessoa.id = :idPessoa")
+    int marcarPrincipal(@Param("idPessoa") Long idPessoa, @Param("idEndereco") Long idEndereco);
+
+    @Query("select new org.attornatus.pessoas.dto.EnderecoDTO(e.id, e.logradouro, e.cep, e.numero, e.cidade, e.principal, e.pessoa.id) " +
+            "from Endereco e where e.id = :id")
+    Optional<EnderecoDTO> buscarDTOPorId(@Param("id") Long id);
+
+    @Query("select new org.attornatus.pessoas.dto.EnderecoDTO(e.id, e.logradouro, e.cep, e.numero, e.cidade, e.principal, e.pessoa.id) " +
+            "from Endereco e where e.pessoa.id = :idPessoa order by e.id")
+    List<EnderecoDTO> buscarDTOsPorIdPessoa(@Param("idPessoa") Long idPessoa);
+
+    @Query("select new org.attornatus.pessoas.dto.EnderecoDTO(e.id, e.logradouro, e.cep, e.numero, e.cidade, e.principal, e.pessoa.id) " +
+            "from Endereco e where e.pessoa.id in :idsPessoas order by e.pessoa.id, e.id")
+    List<EnderecoDTO> buscarDTOsPorIdsPessoas(@Param("idsPessoas") Collection<Long> idsPessoas);
+
+    @Query("select new org.attornatus.pessoas.dto.EnderecoDTO(e.id, e.logradouro, e.cep, e.numero, e.cidade, e.principal, e.pessoa.id) " +
+            "from Endereco e where e.pessoa.id in :idsPessoas and e.principal = true")
+    List<EnderecoDTO> buscarPrincipaisPorIdsPessoas(@Param("idsPessoas") Collection<Long> idsPessoas);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select e.pessoa.id, e.cidadeNormalizada from Endereco e where e.principal = true")
+    Stream<Object[]> listarCidadesPrincipais();
 }
@@ -0,0 +1,17 @@
+package org.attornatus.pessoas.repository;
+
+import org.attornatus.pessoas.dto.EnderecoDTO;
+
+import java.util.stream.Stream;
+
+public interface EnderecoRepositoryCustom {
+
+    // busca os endereços da cidade normalizada em ordem de id, a partir do id seguinte ao informado. Deve ser
+    // consumido dentro de uma transação
+    Stream<EnderecoDTO> buscarPorCidade(String cidadeNormalizada, boolean apenasPrincipais, Long depoisDoId, int limite);
+
+    // busca os endereços com cep normalizado entre o inicial e o final, em ordem de cep e id, a partir da posição
+    // seguinte ao cep e id informados. Deve ser consumido dentro de uma transação
+    Stream<EnderecoDTO> buscarPorFaixaDeCep(String cepInicial, String cepFinal, boolean apenasPrincipais,
+                                            String depoisDoCep, Long depoisDoId, int limite);
+}
@@ -0,0 +1,55 @@
+package org.attornatus.pessoas.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.stream.Stream;
+
+public class EnderecoRepositoryCustomImpl implements EnderecoRepositoryCustom {
+
+    private static final String PROJECAO = "select new org.attornatus.pessoas.dto.EnderecoDTO(e.id, e.logradouro, e.cep, " +
+            "e.numero, e.cidade, e.principal, e.pessoa.id) from Endereco e";
+    private static final int TAMANHO_DO_FETCH = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<EnderecoDTO> buscarPorCidade(String cidadeNormalizada, boolean apenasPrincipais, Long depoisDoId, int limite) {
+        StringBuilder jpql = new StringBuilder(PROJECAO).append(" where e.cidadeNormalizada = :cidade");
+        if (apenasPrincipais) jpql.append(" and e.principal = true");
+        if (depoisDoId != null) jpql.append(" and e.id > :id");
+        jpql.append(" order by e.id");
+
+        TypedQuery<EnderecoDTO> consulta = entityManager.createQuery(jpql.toString(), EnderecoDTO.class)
+                .setParameter("cidade", cidadeNormalizada);
+        if (depoisDoId != null) consulta.setParameter("id", depoisDoId);
+        return transmitir(consulta, limite);
+    }
+
+    @Override
+    public Stream<EnderecoDTO> buscarPorFaixaDeCep(String cepInicial, String cepFinal, boolean apenasPrincipais,
+                                                   String depoisDoCep, Long depoisDoId, int limite) {
+        // a posição do cursor é o par (cep, id), com o id desempatando os endereços de um mesmo cep
+        StringBuilder jpql = new StringBuilder(PROJECAO).append(" where e.cepNormalizado between :inicial and :final");
+        if (apenasPrincipais) jpql.append(" and e.principal = true");
+        if (depoisDoId != null) jpql.append(" and (e.cepNormalizado > :cep or (e.cepNormalizado = :cep and e.id > :id))");
+        jpql.append(" order by e.cepNormalizado, e.id");
+
+        TypedQuery<EnderecoDTO> consulta = entityManager.createQuery(jpql.toString(), EnderecoDTO.class)
+                .setParameter("inicial", cepInicial)
+                .setParameter("final", cepFinal);
+        if (depoisDoId != null) consulta.setParameter("cep", depoisDoCep).setParameter("id", depoisDoId);
+        return transmitir(consulta, limite);
+    }
+
+    private Stream<EnderecoDTO> transmitir(TypedQuery<EnderecoDTO> consulta, int limite) {
+        return consulta.setMaxResults(limite)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, TAMANHO_DO_FETCH)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
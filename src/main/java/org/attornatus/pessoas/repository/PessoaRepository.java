@@ -1,7 +1,43 @@
 package org.attornatus.pessoas.repository;
 
+import jakarta.persistence.QueryHint;
+import org.attornatus.pessoas.dto.LinhaDeExportacaoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
 import org.attornatus.pessoas.model.Pessoa;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface PessoaRepository extends JpaRepository<Pessoa, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface PessoaRepository extends JpaRepository<Pessoa, Long>, PessoaRepositoryCustom {
+
+    @Query("select p.id from Pessoa p where p.id in :ids")
+    List<Long> buscarIdsExistentes(@Param("ids") Collection<Long> ids);
+
+    @Query("select new org.attornatus.pessoas.dto.PessoaDTO(p.id, p.nome, p.dataDeNascimento) from Pessoa p where p.id in :ids")
+    List<PessoaDTO> buscarDTOsPorIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.dataDeNascimento, count(p) from Pessoa p group by p.dataDeNascimento")
+    List<Object[]> contarPorDataDeNascimento();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new org.attornatus.pessoas.dto.PessoaDTO(p.id, p.nome, p.dataDeNascimento) from Pessoa p")
+    Stream<PessoaDTO> listarNomes();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new org.attornatus.pessoas.dto.LinhaDeExportacaoDTO(p.id, p.nome, p.dataDeNascimento, " +
+            "e.id, e.logradouro, e.cep, e.numero, e.cidade, e.principal) " +
+            "from Pessoa p left join Endereco e on e.pessoa = p order by p.id, e.id")
+    Stream<LinhaDeExportacaoDTO> exportarComEnderecos();
 }
@@ -0,0 +1,17 @@
+package org.attornatus.pessoas.repository;
+
+import org.attornatus.pessoas.dto.PessoaDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PessoaRepositoryCustom {
+
+    // busca as pessoas posicionadas após o cursor (campo, valor, id) na ordenação informada, sem usar offset
+    // nem contar o total de registros. Sem valor e id, retorna o início da ordenação
+    List<PessoaDTO> buscarPorCursor(String campo, boolean ascendente, Object valor, Long id, int limite);
+
+    // busca as pessoas nascidas entre as datas informadas, em ordem de data de nascimento e id, a partir da posição
+    // seguinte à data e ao id informados
+    List<PessoaDTO> buscarPorFaixaDeNascimento(LocalDate inicio, LocalDate fim, LocalDate data, Long id, int limite);
+}
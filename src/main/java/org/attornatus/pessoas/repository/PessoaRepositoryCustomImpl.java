@@ -0,0 +1,71 @@
+package org.attornatus.pessoas.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.attornatus.pessoas.dto.PessoaDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class PessoaRepositoryCustomImpl implements PessoaRepositoryCustom {
+
+    // campos que podem ser usados na ordenação por cursor, cada um coberto por um índice que termina no id
+    private static final Map<String, String> CAMPOS = Map.of(
+            "id", "p.id",
+            "nome", "p.nome",
+            "dataDeNascimento", "p.dataDeNascimento"
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PessoaDTO> buscarPorCursor(String campo, boolean ascendente, Object valor, Long id, int limite) {
+        String caminho = CAMPOS.get(campo);
+        if (caminho == null) {
+            throw new IllegalArgumentException("Campo de ordenação não suportado: " + campo);
+        }
+
+        String comparacao = ascendente ? ">" : "<";
+        String direcao = ascendente ? "asc" : "desc";
+        boolean ordenaPeloId = campo.equals("id");
+
+        // monta a consulta por chave: os registros vêm depois do cursor na ordenação (campo, id), com o id
+        // desempatando registros que tenham o mesmo valor no campo
+        StringBuilder jpql = new StringBuilder("select new org.attornatus.pessoas.dto.PessoaDTO(p.id, p.nome, p.dataDeNascimento) from Pessoa p");
+        if (id != null) {
+            if (ordenaPeloId) {
+                jpql.append(" where p.id ").append(comparacao).append(" :id");
+            } else {
+                jpql.append(" where ").append(caminho).append(' ').append(comparacao).append(" :valor")
+                        .append(" or (").append(caminho).append(" = :valor and p.id ").append(comparacao).append(" :id)");
+            }
+        }
+        jpql.append(" order by ");
+        if (!ordenaPeloId) jpql.append(caminho).append(' ').append(direcao).append(", ");
+        jpql.append("p.id ").append(direcao);
+
+        TypedQuery<PessoaDTO> consulta = entityManager.createQuery(jpql.toString(), PessoaDTO.class);
+        if (id != null) {
+            consulta.setParameter("id", id);
+            if (!ordenaPeloId) consulta.setParameter("valor", valor);
+        }
+        return consulta.setMaxResults(limite).getResultList();
+    }
+
+    @Override
+    public List<PessoaDTO> buscarPorFaixaDeNascimento(LocalDate inicio, LocalDate fim, LocalDate data, Long id, int limite) {
+        StringBuilder jpql = new StringBuilder("select new org.attornatus.pessoas.dto.PessoaDTO(p.id, p.nome, p.dataDeNascimento) " +
+                "from Pessoa p where p.dataDeNascimento between :inicio and :fim");
+        if (id != null) jpql.append(" and (p.dataDeNascimento > :data or (p.dataDeNascimento = :data and p.id > :id))");
+        jpql.append(" order by p.dataDeNascimento, p.id");
+
+        TypedQuery<PessoaDTO> consulta = entityManager.createQuery(jpql.toString(), PessoaDTO.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fim", fim);
+        if (id != null) consulta.setParameter("data", data).setParameter("id", id);
+        return consulta.setMaxResults(limite).getResultList();
+    }
+}
@@ -0,0 +1,141 @@
+package org.attornatus.pessoas.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.util.CursorDePaginacao;
+import org.attornatus.pessoas.util.Normalizacao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class BuscaDeEnderecosService {
+
+    private static final String CAMPO_CIDADE = "cidade";
+    private static final String CAMPO_CEP = "cep";
+    private static final int DIGITOS_DO_CEP = 8;
+    private static final int TAMANHO_DO_BUFFER = 64 * 1024;
+
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    // valida os parâmetros antes que a resposta comece a ser escrita, quando ainda é possível responder com um erro
+    public Consulta consultarPorCidade(String cidade, boolean apenasPrincipais, String cursor, int tamanho) {
+        String cidadeNormalizada = Normalizacao.texto(cidade);
+        if (cidadeNormalizada.isEmpty()) {
+            throw new BadRequestException("Informe a cidade a ser buscada");
+        }
+        CursorDePaginacao anterior = decodificarCursor(cursor, CAMPO_CIDADE);
+        return new Consulta(CAMPO_CIDADE, cidadeNormalizada, null, apenasPrincipais, anterior, tamanho);
+    }
+
+    // aceita um prefixo de cep, que é convertido na faixa de todos os ceps que começam por ele, ou uma faixa explícita
+    public Consulta consultarPorCep(String prefixo, String cepInicial, String cepFinal, boolean apenasPrincipais,
+                                    String cursor, int tamanho) {
+        String inicial;
+        String fim;
+        if (prefixo != null) {
+            inicial = completarCep(prefixo, '0');
+            fim = completarCep(prefixo, '9');
+        } else if (cepInicial != null && cepFinal != null) {
+            inicial = completarCep(cepInicial, '0');
+            fim = completarCep(cepFinal, '9');
+        } else {
+            throw new BadRequestException("Informe um prefixo de cep ou os ceps inicial e final da faixa");
+        }
+        if (inicial.compareTo(fim) > 0) {
+            throw new BadRequestException("O cep inicial deve ser menor ou igual ao cep final");
+        }
+        CursorDePaginacao anterior = decodificarCursor(cursor, CAMPO_CEP);
+        return new Consulta(CAMPO_CEP, inicial, fim, apenasPrincipais, anterior, tamanho);
+    }
+
+    @Transactional(readOnly = true)
+    public void transmitir(Consulta consulta, OutputStream saida) throws IOException {
+        OutputStream destino = new BufferedOutputStream(saida, TAMANHO_DO_BUFFER);
+        JsonGenerator gerador = objectMapper.getFactory().createGenerator(destino)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        // escreve cada endereço assim que é lido do banco, no mesmo formato das demais páginas por cursor. Um registro
+        // além do tamanho da página é buscado apenas para saber se há uma próxima
+        gerador.writeStartObject();
+        gerador.writeArrayFieldStart("conteudo");
+        int escritos = 0;
+        boolean temProximo = false;
+        EnderecoDTO ultimo = null;
+        try (Stream<EnderecoDTO> enderecos = buscar(consulta)) {
+            Iterator<EnderecoDTO> iterador = enderecos.iterator();
+            while (iterador.hasNext()) {
+                EnderecoDTO endereco = iterador.next();
+                if (escritos == consulta.tamanho()) {
+                    temProximo = true;
+                    break;
+                }
+                gerador.writeObject(endereco);
+                ultimo = endereco;
+                escritos++;
+            }
+        }
+        gerador.writeEndArray();
+
+        gerador.writeNumberField("tamanho", escritos);
+        gerador.writeBooleanField("temProximo", temProximo);
+        if (temProximo) {
+            String valor = consulta.campo().equals(CAMPO_CEP) ? Normalizacao.cep(ultimo.getCep()) : null;
+            gerador.writeStringField("proximo",
+                    new CursorDePaginacao(consulta.campo(), Sort.Direction.ASC, ultimo.getId(), valor).codificar());
+        } else {
+            gerador.writeNullField("proximo");
+        }
+        gerador.writeEndObject();
+        gerador.flush();
+        destino.flush();
+    }
+
+
+    private Stream<EnderecoDTO> buscar(Consulta consulta) {
+        CursorDePaginacao anterior = consulta.anterior();
+        Long depoisDoId = anterior == null ? null : anterior.getId();
+        if (consulta.campo().equals(CAMPO_CIDADE)) {
+            return enderecoRepository.buscarPorCidade(consulta.valor(), consulta.apenasPrincipais(), depoisDoId,
+                    consulta.tamanho() + 1);
+        }
+        return enderecoRepository.buscarPorFaixaDeCep(consulta.valor(), consulta.fim(), consulta.apenasPrincipais(),
+                anterior == null ? null : anterior.getValor(), depoisDoId, consulta.tamanho() + 1);
+    }
+
+    private String completarCep(String cep, char complemento) {
+        String digitos = Normalizacao.cep(cep);
+        if (digitos.isEmpty() || digitos.length() > DIGITOS_DO_CEP) {
+            throw new BadRequestException("O cep informado é inválido: " + cep);
+        }
+        return digitos + String.valueOf(complemento).repeat(DIGITOS_DO_CEP - digitos.length());
+    }
+
+    private CursorDePaginacao decodificarCursor(String cursor, String campo) {
+        if (cursor == null || cursor.isBlank()) return null;
+        CursorDePaginacao anterior = CursorDePaginacao.decodificar(cursor);
+        if (!anterior.getCampo().equals(campo)) {
+            throw new BadRequestException("O cursor informado não corresponde a esta busca");
+        }
+        return anterior;
+    }
+
+    // busca já validada: o valor é a cidade normalizada ou o cep inicial da faixa, que termina no fim
+    public record Consulta(String campo, String valor, String fim, boolean apenasPrincipais,
+                           CursorDePaginacao anterior, int tamanho) {
+    }
+}
@@ -1,15 +1,22 @@
 package org.attornatus.pessoas.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.cache.EnderecoCache;
+import org.attornatus.pessoas.cache.PessoaCache;
 import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.escrita.GravadorEmGrupo;
 import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
 import org.attornatus.pessoas.model.Endereco;
 import org.attornatus.pessoas.model.Pessoa;
 import org.attornatus.pessoas.repository.EnderecoRepository;
 import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.util.AposCommit;
+import org.attornatus.pessoas.util.Normalizacao;
 import org.attornatus.pessoas.util.Parser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -20,6 +27,14 @@ public class EnderecoService {
     private EnderecoRepository enderecoRepository;
     @Autowired
     private PessoaRepository pessoaRepository;
+    @Autowired
+    private PessoaCache pessoaCache;
+    @Autowired
+    private EnderecoCache enderecoCache;
+    @Autowired
+    private AgregadosDemograficos agregadosDemograficos;
+    @Autowired
+    private GravadorEmGrupo gravadorEmGrupo;
 
 
     public EnderecoDTO criar(EnderecoDTO enderecoDTO) {
@@ -31,8 +46,12 @@ public class EnderecoService {
         endereco.setPessoa(pessoa);
         endereco.setPrincipal(false);
 
-        // salva o novo endereço no banco de dados
-        Endereco enderecoCriado = enderecoRepository.save(endereco);
+        // salva o novo endereço no banco de dados, em grupo com outras criações quando habilitado, e invalida a lista
+        // de endereços da pessoa guardada no cache
+        Endereco enderecoCriado = gravadorEmGrupo.isHabilitado()
+                ? gravadorEmGrupo.gravar(endereco, pessoa.getId())
+                : enderecoRepository.save(endereco);
+        AposCommit.executar(() -> enderecoCache.invalidar(enderecoDTO.getIdPessoa()));
 
         // converte o novo endereço salvo em dto e retorna
         return Parser.enderecoParaDTO(enderecoCriado);
@@ -40,57 +59,62 @@ public class EnderecoService {
 
 
     public List<EnderecoDTO> buscarEnderecosDaPessoa(Long idPessoa) {
-        // busca a pessoa pelo id no banco de dados. Caso não haja, lança uma exceção
-        Pessoa pessoa = buscarPessoaPeloId(idPessoa);
+        return enderecoCache.buscar(idPessoa, () -> {
+            // busca os endereços da pessoa pelo índice de id_pessoa, já projetados em dtos
+            List<EnderecoDTO> enderecoDTOList = enderecoRepository.buscarDTOsPorIdPessoa(idPessoa);
 
-        // busca todos os endereços da pessoa no banco de dados
-        List<Endereco> enderecoList = enderecoRepository.findEnderecosByPessoa(pessoa);
+            // uma lista vazia pode significar que a pessoa não existe. Só nesse caso verifica sua existência,
+            // lançando uma exceção caso não haja
+            if (enderecoDTOList.isEmpty() && !pessoaRepository.existsById(idPessoa)) {
+                throw new EntityNotFoundException("Não existe nenhuma pessoa com o id " + idPessoa);
+            }
 
-        // transforma a lista de endereços em uma lista de dtos e retorna
-        List<EnderecoDTO> enderecoDTOList = enderecoList.stream().map(Parser::enderecoParaDTO).toList();
-        return enderecoDTOList;
+            return enderecoDTOList;
+        });
     }
 
 
+    @Transactional
     public EnderecoDTO escolherEnderecoPrincipal(Long idPessoa, Long idEndereco) {
-        // busca a pessoa e o endereço informados. Caso não haja algum deles, lança uma exceção
-        Pessoa pessoa = buscarPessoaPeloId(idPessoa);
-        Endereco novoEnderecoPrincipal = enderecoRepository.findById(idEndereco).orElseThrow(() -> {
-            return new EntityNotFoundException("Não existe nenhum endereco com o id " + idEndereco);
-        });
-
-        // vê se o endereço de fato pertence à pessoa informada, evitando inconsistências
-        if (!novoEnderecoPrincipal.getPessoa().getId().equals(idPessoa)) {
+        // desmarca os endereços da pessoa diretamente no banco, sem carregar nenhum deles. Todos os endereços são
+        // atualizados, e não só o principal, para que requisições concorrentes para a mesma pessoa bloqueiem as mesmas
+        // linhas na mesma ordem e sejam executadas uma após a outra
+        enderecoRepository.desmarcarTodos(idPessoa);
+
+        // marca o endereço escolhido como principal, desde que ele pertença à pessoa informada. Caso nenhum endereço
+        // seja alterado, descobre o motivo e lança uma exceção, desfazendo também a alteração anterior
+        if (enderecoRepository.marcarPrincipal(idPessoa, idEndereco) == 0) {
+            if (!pessoaRepository.existsById(idPessoa)) {
+                throw new EntityNotFoundException("Não existe nenhuma pessoa com o id " + idPessoa);
+            }
+            if (!enderecoRepository.existsById(idEndereco)) {
+                throw new EntityNotFoundException("Não existe nenhum endereco com o id " + idEndereco);
+            }
             throw new BadRequestException("Este endereço não pertence à pessoa informada");
         }
 
-        // busca todos os endereços classificados como "principal" da pessoa informada e os altera ainda em memória,
-        // garantindo que não haja mais de um endereço principal
-        List<Endereco> enderecosDaPessoa = enderecoRepository.findEnderecosByPessoa(pessoa);
-        List<Endereco> enderecosPrincipaisDaPessoa = enderecosDaPessoa.stream().filter(endereco -> {
-            return endereco.getPrincipal().equals(true);
-        }).map(endereco -> {
-            endereco.setPrincipal(false);
-            return endereco;
-        }).toList();
-
-        // atualiza no banco de dados os endereços que eram classificados como "principal"
-        enderecoRepository.saveAll(enderecosPrincipaisDaPessoa);
-
-        // muda em memória o novo endereço escolhido para "principal"
-        novoEnderecoPrincipal.setPrincipal(true);
-        // salva no banco de dados o novo endereço principal e o retorna como um dto
-        return Parser.enderecoParaDTO(enderecoRepository.save(novoEnderecoPrincipal));
+        // busca o novo endereço principal já projetado em dto
+        EnderecoDTO principal = enderecoRepository.buscarDTOPorId(idEndereco).orElseThrow();
+
+        // a lista de endereços da pessoa guardada no cache deixa de valer e a cidade principal da pessoa muda nos
+        // agregados assim que a troca for confirmada
+        AposCommit.executar(() -> {
+            enderecoCache.invalidar(idPessoa);
+            agregadosDemograficos.definirCidadePrincipal(idPessoa, Normalizacao.texto(principal.getCidade()));
+        });
+        return principal;
     }
 
 
 
     public Pessoa buscarPessoaPeloId(Long id) {
-        // busca a pessoa pelo id no banco de dados. Caso não haja, lança uma exceção
-        Pessoa pessoa = pessoaRepository.findById(id).orElseThrow(() -> {
+        // verifica no cache, ou no banco de dados se não estiver lá, se a pessoa existe. Caso não haja, lança uma exceção
+        pessoaCache.buscar(id, () -> pessoaRepository.findById(id).map(Parser::pessoaParaDTO)).orElseThrow(() -> {
             return new EntityNotFoundException("Não existe nenhuma pessoa com o id " + id);
         });
-        return pessoa;
+
+        // retorna apenas uma referência à pessoa, suficiente para relacioná-la a um endereço sem carregá-la
+        return pessoaRepository.getReferenceById(id);
     }
 
 }
\ No newline at end of file
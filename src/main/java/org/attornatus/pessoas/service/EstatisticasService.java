@@ -0,0 +1,67 @@
+package org.attornatus.pessoas.service;
+
+import org.attornatus.pessoas.dto.EstatisticasDTO;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+public class EstatisticasService {
+
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private AgregadosDemograficos agregadosDemograficos;
+
+
+    public EstatisticasDTO consultar() {
+        // as estatísticas vêm dos agregados em memória, sem consultar o banco
+        return agregadosDemograficos.consultar(LocalDate.now());
+    }
+
+    // calcula os agregados ao iniciar a aplicação. O listener não retorna nada, já que o Spring publicaria o retorno
+    // como um novo evento
+    @EventListener(ApplicationStartedEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruirNaInicializacao() {
+        reconstruir();
+    }
+
+    // recalcula os agregados a partir do banco. Pode ser pedido novamente quando houver suspeita de que eles se
+    // desviaram das tabelas
+    @Transactional(readOnly = true)
+    public EstatisticasDTO reconstruir() {
+        // as leituras são feitas pelo próprio agregado, que grava as alterações confirmadas enquanto elas acontecem
+        agregadosDemograficos.reconstruir(this::contarPorDataDeNascimento, this::listarCidadesPrincipais);
+        return consultar();
+    }
+
+
+    private Map<LocalDate, Long> contarPorDataDeNascimento() {
+        Map<LocalDate, Long> porDataDeNascimento = new HashMap<>();
+        for (Object[] linha : pessoaRepository.contarPorDataDeNascimento()) {
+            porDataDeNascimento.put((LocalDate) linha[0], (Long) linha[1]);
+        }
+        return porDataDeNascimento;
+    }
+
+    private Map<Long, String> listarCidadesPrincipais() {
+        Map<Long, String> cidadePrincipalPorPessoa = new HashMap<>();
+        try (Stream<Object[]> linhas = enderecoRepository.listarCidadesPrincipais()) {
+            linhas.forEach(linha -> cidadePrincipalPorPessoa.put((Long) linha[0], (String) linha[1]));
+        }
+        return cidadePrincipalPorPessoa;
+    }
+}
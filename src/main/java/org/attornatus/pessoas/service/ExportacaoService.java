@@ -0,0 +1,112 @@
+package org.attornatus.pessoas.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.LinhaDeExportacaoDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecosDTO;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.util.Csv;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ExportacaoService {
+
+    private static final String CABECALHO_CSV = "idPessoa,nome,dataDeNascimento,idEndereco,logradouro,cep,numero,cidade,principal";
+    private static final int TAMANHO_DO_BUFFER = 64 * 1024;
+
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    @Transactional(readOnly = true)
+    public void exportarNdjson(OutputStream saida) throws IOException {
+        // o escritor não pode fechar nem descarregar a saída a cada pessoa, deixando isso para o buffer
+        ObjectWriter escritor = objectMapper.writerFor(PessoaComEnderecosDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        OutputStream destino = new BufferedOutputStream(saida, TAMANHO_DO_BUFFER);
+
+        // percorre a junção ordenada por pessoa, acumulando apenas os endereços da pessoa atual antes de escrevê-la
+        try (Stream<LinhaDeExportacaoDTO> linhas = pessoaRepository.exportarComEnderecos()) {
+            Iterator<LinhaDeExportacaoDTO> iterador = linhas.iterator();
+            PessoaComEnderecosDTO atual = null;
+
+            while (iterador.hasNext()) {
+                LinhaDeExportacaoDTO linha = iterador.next();
+
+                // ao mudar de pessoa, escreve a anterior já completa
+                if (atual == null || !atual.getId().equals(linha.getIdPessoa())) {
+                    if (atual != null) escreverLinhaJson(escritor, destino, atual);
+                    atual = new PessoaComEnderecosDTO(linha.getIdPessoa(), linha.getNome(), linha.getDataDeNascimento(), new ArrayList<>());
+                }
+
+                if (linha.getIdEndereco() != null) {
+                    atual.getEnderecos().add(new EnderecoDTO(linha.getIdEndereco(), linha.getLogradouro(), linha.getCep(),
+                            linha.getNumero(), linha.getCidade(), linha.getPrincipal(), linha.getIdPessoa()));
+                }
+            }
+
+            if (atual != null) escreverLinhaJson(escritor, destino, atual);
+        }
+
+        destino.flush();
+    }
+
+
+    @Transactional(readOnly = true)
+    public void exportarCsv(OutputStream saida) throws IOException {
+        OutputStream destino = new BufferedOutputStream(saida, TAMANHO_DO_BUFFER);
+        escreverLinhaCsv(destino, CABECALHO_CSV);
+
+        // no csv cada endereço ocupa uma linha, repetindo os dados da pessoa. Pessoas sem endereço ocupam uma linha
+        // com os campos do endereço vazios
+        try (Stream<LinhaDeExportacaoDTO> linhas = pessoaRepository.exportarComEnderecos()) {
+            linhas.forEach(linha -> {
+                String conteudo = String.join(",",
+                        Csv.escapar(linha.getIdPessoa()),
+                        Csv.escapar(linha.getNome()),
+                        Csv.escapar(linha.getDataDeNascimento()),
+                        Csv.escapar(linha.getIdEndereco()),
+                        Csv.escapar(linha.getLogradouro()),
+                        Csv.escapar(linha.getCep()),
+                        Csv.escapar(linha.getNumero()),
+                        Csv.escapar(linha.getCidade()),
+                        Csv.escapar(linha.getPrincipal()));
+                escreverLinhaCsv(destino, conteudo);
+            });
+        }
+
+        destino.flush();
+    }
+
+
+    private void escreverLinhaJson(ObjectWriter escritor, OutputStream destino, PessoaComEnderecosDTO pessoa) throws IOException {
+        escritor.writeValue(destino, pessoa);
+        destino.write('\n');
+    }
+
+    private void escreverLinhaCsv(OutputStream destino, String conteudo) {
+        try {
+            destino.write(conteudo.getBytes(StandardCharsets.UTF_8));
+            destino.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.attornatus.pessoas.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.attornatus.pessoas.cache.EnderecoCache;
+import org.attornatus.pessoas.cache.PessoaCache;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.ErroImportacaoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.dto.RelatorioImportacaoDTO;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
+import org.attornatus.pessoas.indice.IndiceDeNomes;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.util.AposCommit;
+import org.attornatus.pessoas.util.Csv;
+import org.attornatus.pessoas.util.Normalizacao;
+import org.attornatus.pessoas.util.Parser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class ImportacaoService {
+
+    private static final String CABECALHO_CSV_PESSOA = "nome,dataDeNascimento";
+    private static final String CABECALHO_CSV_ENDERECO = "logradouro,cep,numero,cidade,principal,idPessoa";
+
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private PessoaCache pessoaCache;
+    @Autowired
+    private IndiceDeNomes indiceDeNomes;
+    @Autowired
+    private AgregadosDemograficos agregadosDemograficos;
+    @Autowired
+    private EnderecoCache enderecoCache;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${pessoas.importacao.tamanho-lote:500}")
+    private int tamanhoDoLote;
+
+
+    public RelatorioImportacaoDTO importarPessoas(InputStream corpo, boolean csv) throws IOException {
+        ConversorDeLinha<PessoaDTO> conversor = csv
+                ? this::csvParaPessoaDTO
+                : linha -> objectMapper.readValue(linha, PessoaDTO.class);
+
+        return importar(corpo, conversor, csv ? CABECALHO_CSV_PESSOA : null, lote -> {
+            // converte as linhas do lote em pessoas e as salva de uma só vez, deixando o hibernate agrupar os inserts
+            List<Pessoa> pessoas = lote.stream().map(linha -> Parser.dtoParaPessoa(linha.dto())).toList();
+            pessoaRepository.saveAll(pessoas);
+
+            // descarta do cache consultas anteriores que não encontraram os ids recém-criados e os inclui no índice de
+            // nomes e nos agregados
+            List<Long> ids = pessoas.stream().map(Pessoa::getId).toList();
+            AposCommit.executar(() -> {
+                pessoaCache.invalidar(ids);
+                pessoas.forEach(pessoa -> {
+                    indiceDeNomes.atualizar(pessoa.getId(), pessoa.getNome());
+                    agregadosDemograficos.registrarNascimento(null, pessoa.getDataDeNascimento());
+                });
+            });
+            return List.of();
+        });
+    }
+
+
+    public RelatorioImportacaoDTO importarEnderecos(InputStream corpo, boolean csv) throws IOException {
+        ConversorDeLinha<EnderecoDTO> conversor = csv
+                ? this::csvParaEnderecoDTO
+                : linha -> objectMapper.readValue(linha, EnderecoDTO.class);
+
+        return importar(corpo, conversor, csv ? CABECALHO_CSV_ENDERECO : null, this::gravarEnderecos);
+    }
+
+
+    private List<ErroImportacaoDTO> gravarEnderecos(List<LinhaImportada<EnderecoDTO>> lote) {
+        // verifica de uma só vez quais das pessoas referenciadas pelo lote existem
+        Set<Long> idsReferenciados = lote.stream().map(linha -> linha.dto().getIdPessoa()).collect(Collectors.toSet());
+        Set<Long> idsExistentes = new HashSet<>(pessoaRepository.buscarIdsExistentes(idsReferenciados));
+
+        List<ErroImportacaoDTO> rejeitadas = new ArrayList<>();
+        List<Endereco> enderecos = new ArrayList<>(lote.size());
+        Set<Long> idsAlterados = new HashSet<>();
+        Map<Long, Endereco> principalPorPessoa = new HashMap<>();
+
+        for (LinhaImportada<EnderecoDTO> linha : lote) {
+            // endereços de pessoas inexistentes são rejeitados sem impedir a gravação do restante do lote
+            Long idPessoa = linha.dto().getIdPessoa();
+            if (!idsExistentes.contains(idPessoa)) {
+                rejeitadas.add(new ErroImportacaoDTO(linha.numero(), List.of("Não existe nenhuma pessoa com o id " + idPessoa)));
+                continue;
+            }
+
+            // usa apenas uma referência à pessoa, já que sua existência foi verificada acima
+            Endereco endereco = Parser.dtoParaEndereco(linha.dto());
+            endereco.setPessoa(pessoaRepository.getReferenceById(idPessoa));
+            endereco.setPrincipal(false);
+            enderecos.add(endereco);
+            idsAlterados.add(idPessoa);
+
+            // se mais de um endereço da mesma pessoa vier marcado como principal, o último prevalece
+            if (Boolean.TRUE.equals(linha.dto().getPrincipal())) principalPorPessoa.put(idPessoa, endereco);
+        }
+
+        // desmarca os endereços principais atuais das pessoas que receberão um novo, garantindo que haja apenas um
+        if (!principalPorPessoa.isEmpty()) {
+            enderecoRepository.desmarcarPrincipais(principalPorPessoa.keySet());
+            principalPorPessoa.values().forEach(endereco -> endereco.setPrincipal(true));
+        }
+
+        enderecoRepository.saveAll(enderecos);
+
+        // invalida as listas em cache de todas as pessoas que receberam endereços neste lote e registra nos agregados
+        // as novas cidades principais
+        AposCommit.executar(() -> {
+            idsAlterados.forEach(enderecoCache::invalidar);
+            principalPorPessoa.forEach((idPessoa, endereco) ->
+                    agregadosDemograficos.definirCidadePrincipal(idPessoa, Normalizacao.texto(endereco.getCidade())));
+        });
+        return rejeitadas;
+    }
+
+
+    private <T> RelatorioImportacaoDTO importar(InputStream corpo, ConversorDeLinha<T> conversor, String cabecalho,
+                                                GravadorDeLote<T> gravador) throws IOException {
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8));
+        List<ErroImportacaoDTO> erros = new ArrayList<>();
+        List<LinhaImportada<T>> lote = new ArrayList<>(tamanhoDoLote);
+        long numeroDaLinha = 0;
+        long importados = 0;
+
+        // lê a entrada linha a linha, sem nunca manter mais do que um lote em memória
+        String linha;
+        while ((linha = leitor.readLine()) != null) {
+            numeroDaLinha++;
+
+            // ignora linhas vazias e o cabeçalho opcional do csv
+            if (linha.isBlank()) continue;
+            if (numeroDaLinha == 1 && cabecalho != null && linha.trim().equalsIgnoreCase(cabecalho)) continue;
+
+            // converte a linha em dto. Caso não seja possível, registra o erro e segue para a próxima linha
+            T dto;
+            try {
+                dto = conversor.converter(linha);
+            } catch (JsonProcessingException ex) {
+                erros.add(new ErroImportacaoDTO(numeroDaLinha, List.of("JSON inválido: " + ex.getOriginalMessage())));
+                continue;
+            } catch (DateTimeParseException ex) {
+                erros.add(new ErroImportacaoDTO(numeroDaLinha, List.of("Data inválida: " + ex.getParsedString())));
+                continue;
+            } catch (BadRequestException ex) {
+                erros.add(new ErroImportacaoDTO(numeroDaLinha, List.of(ex.getMessage())));
+                continue;
+            }
+
+            // valida o dto com as mesmas restrições usadas nos endpoints de criação
+            List<String> violacoes = validator.validate(dto).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .toList();
+            if (!violacoes.isEmpty()) {
+                erros.add(new ErroImportacaoDTO(numeroDaLinha, violacoes));
+                continue;
+            }
+
+            lote.add(new LinhaImportada<>(numeroDaLinha, dto));
+            if (lote.size() >= tamanhoDoLote) {
+                importados += gravarLote(lote, gravador, erros);
+                lote.clear();
+            }
+        }
+
+        if (!lote.isEmpty()) importados += gravarLote(lote, gravador, erros);
+
+        erros.sort(Comparator.comparing(ErroImportacaoDTO::getLinha));
+        return new RelatorioImportacaoDTO(numeroDaLinha, importados, erros);
+    }
+
+
+    private <T> long gravarLote(List<LinhaImportada<T>> lote, GravadorDeLote<T> gravador, List<ErroImportacaoDTO> erros) {
+        try {
+            // cada lote é gravado em sua própria transação, então uma falha não desfaz os lotes anteriores
+            List<ErroImportacaoDTO> rejeitadas = transactionTemplate.execute(status -> gravador.gravar(lote));
+            erros.addAll(rejeitadas);
+            return lote.size() - rejeitadas.size();
+        } catch (DataAccessException ex) {
+            // se o banco recusar o lote, todas as suas linhas são reportadas como não importadas
+            String mensagem = "Falha ao gravar o lote: " + ex.getMostSpecificCause().getMessage();
+            lote.forEach(linha -> erros.add(new ErroImportacaoDTO(linha.numero(), List.of(mensagem))));
+            return 0;
+        }
+    }
+
+
+    private PessoaDTO csvParaPessoaDTO(String linha) {
+        List<String> campos = Csv.dividirLinha(linha);
+        if (campos.size() != 2) {
+            throw new BadRequestException("A linha deve conter os campos " + CABECALHO_CSV_PESSOA);
+        }
+
+        LocalDate dataDeNascimento = campos.get(1).isEmpty() ? null : LocalDate.parse(campos.get(1));
+        return new PessoaDTO(null, campos.get(0).isEmpty() ? null : campos.get(0), dataDeNascimento);
+    }
+
+
+    private EnderecoDTO csvParaEnderecoDTO(String linha) {
+        List<String> campos = Csv.dividirLinha(linha);
+        if (campos.size() != 6) {
+            throw new BadRequestException("A linha deve conter os campos " + CABECALHO_CSV_ENDERECO);
+        }
+
+        return new EnderecoDTO(
+                null,
+                campos.get(0).isEmpty() ? null : campos.get(0),
+                campos.get(1).isEmpty() ? null : campos.get(1),
+                campos.get(2).isEmpty() ? null : converterInteiro(campos.get(2), "numero"),
+                campos.get(3).isEmpty() ? null : campos.get(3),
+                Boolean.parseBoolean(campos.get(4)),
+                campos.get(5).isEmpty() ? null : converterNumero(campos.get(5), "idPessoa"));
+    }
+
+
+    private Integer converterInteiro(String valor, String campo) {
+        // valores fora do intervalo de um int são recusados, como na leitura do ndjson, em vez de truncados
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Campo " + campo + " deve ser um inteiro entre " + Integer.MIN_VALUE + " e " + Integer.MAX_VALUE + ": " + valor);
+        }
+    }
+
+
+    private Long converterNumero(String valor, String campo) {
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Campo " + campo + " deve ser numérico: " + valor);
+        }
+    }
+
+
+    private record LinhaImportada<T>(long numero, T dto) {
+    }
+
+    @FunctionalInterface
+    private interface ConversorDeLinha<T> {
+        T converter(String linha) throws JsonProcessingException;
+    }
+
+    @FunctionalInterface
+    private interface GravadorDeLote<T> {
+        // grava as linhas válidas do lote e retorna as que foram rejeitadas
+        List<ErroImportacaoDTO> gravar(List<LinhaImportada<T>> lote);
+    }
+}
@@ -1,39 +1,118 @@
 package org.attornatus.pessoas.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.cache.PessoaCache;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PaginaPorCursorDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecoPrincipalDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecosDTO;
 import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.dto.PessoasPorIdsDTO;
+import org.attornatus.pessoas.escrita.GravadorEmGrupo;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
+import org.attornatus.pessoas.indice.IndiceDeNomes;
 import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
 import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.util.AposCommit;
+import org.attornatus.pessoas.util.CursorDePaginacao;
 import org.attornatus.pessoas.util.Parser;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PessoaService {
+    private static final Set<String> CAMPOS_ORDENAVEIS_POR_CURSOR = Set.of("id", "nome", "dataDeNascimento");
+
     @Autowired
     private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private PessoaCache pessoaCache;
+    @Autowired
+    private IndiceDeNomes indiceDeNomes;
+    @Autowired
+    private AgregadosDemograficos agregadosDemograficos;
+    @Autowired
+    private GravadorEmGrupo gravadorEmGrupo;
+
+    @Value("${pessoas.consulta-por-ids.tamanho-maximo:200}")
+    private int tamanhoMaximoDaConsultaPorIds;
+    @Value("${pessoas.consulta-por-ids.tamanho-do-in:100}")
+    private int tamanhoDoIn;
 
 
     public PessoaDTO criar(PessoaDTO pessoaDTO) {
-        // converte o DTO para um objeto do tipo Pessoa e salva no banco de dados
+        // converte o DTO para um objeto do tipo Pessoa e salva no banco de dados. Quando habilitada, a gravação é
+        // feita em grupo com outras criações e retorna já após o commit do lote
         Pessoa pessoa = Parser.dtoParaPessoa(pessoaDTO);
-        Pessoa pessoaSalva = pessoaRepository.save(pessoa);
+        Pessoa pessoaSalva = gravadorEmGrupo.isHabilitado() ? gravadorEmGrupo.gravar(pessoa) : pessoaRepository.save(pessoa);
 
-        // converte a pessoa salva para DTO e o retorna
-        return Parser.pessoaParaDTO(pessoaSalva);
+        // converte a pessoa salva para DTO e a retorna. O cache, o índice de nomes e os agregados só a recebem depois
+        // do commit, caso a criação faça parte de uma transação maior
+        PessoaDTO pessoaSalvaDTO = Parser.pessoaParaDTO(pessoaSalva);
+        AposCommit.executar(() -> {
+            pessoaCache.atualizar(pessoaSalvaDTO);
+            indiceDeNomes.atualizar(pessoaSalvaDTO.getId(), pessoaSalvaDTO.getNome());
+            agregadosDemograficos.registrarNascimento(null, pessoaSalvaDTO.getDataDeNascimento());
+        });
+        return pessoaSalvaDTO;
     }
 
 
     public PessoaDTO consultarPorId(Long id) {
-        // buscar uma pessoa no banco de dados pelo id. Caso não haja, lança uma exceção
-        Pessoa pessoaEncontrada = pessoaRepository.findById(id).orElseThrow(() -> {
+        // busca a pessoa no cache ou, se não estiver lá, no banco de dados. Caso não haja, lança uma exceção
+        return pessoaCache.buscar(id, () -> pessoaRepository.findById(id).map(Parser::pessoaParaDTO)).orElseThrow(() -> {
             return new EntityNotFoundException("Não existe nenhuma pessoa com o id " + id);
         });
+    }
 
-        // converte a pessoa encontrada para DTO e o retorna
-        return Parser.pessoaParaDTO(pessoaEncontrada);
+    public PessoaDTO consultarPorId(Long id, String expand) {
+        return expandir(List.of(consultarPorId(id)), expand).get(0);
+    }
+
+    public PessoasPorIdsDTO consultarPorIds(List<Long> ids) {
+        // limita o tamanho do lote para que uma única chamada não ocupe uma conexão por tempo demais
+        if (ids.isEmpty() || ids.size() > tamanhoMaximoDaConsultaPorIds) {
+            throw new BadRequestException("Informe entre 1 e " + tamanhoMaximoDaConsultaPorIds + " ids por consulta");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new BadRequestException("A lista de ids não pode conter valores nulos");
+        }
+
+        // busca as pessoas no cache e carrega as que faltam em consultas com in, divididas em blocos
+        List<Long> distintos = ids.stream().distinct().toList();
+        Map<Long, Optional<PessoaDTO>> encontradas = pessoaCache.buscarTodos(distintos, this::carregarPorIds);
+
+        // responde na ordem dos ids pedidos, separando os que não existem
+        List<PessoaDTO> pessoas = new ArrayList<>();
+        List<Long> naoEncontrados = new ArrayList<>();
+        for (Long id : distintos) {
+            Optional<PessoaDTO> pessoa = encontradas.getOrDefault(id, Optional.empty());
+            if (pessoa.isPresent()) pessoas.add(pessoa.get());
+            else naoEncontrados.add(id);
+        }
+        return new PessoasPorIdsDTO(pessoas, naoEncontrados);
     }
 
     public Page<PessoaDTO> consultarTodos(Pageable paginacao) {
@@ -41,7 +120,55 @@ public class PessoaService {
         return pessoaRepository.findAll(paginacao).map(Parser::pessoaParaDTO);
     }
 
+    public Page<PessoaDTO> consultarTodos(Pageable paginacao, String expand) {
+        Page<PessoaDTO> pagina = consultarTodos(paginacao);
+        return new PageImpl<>(expandir(pagina.getContent(), expand), pagina.getPageable(), pagina.getTotalElements());
+    }
+
+    public PaginaPorCursorDTO<PessoaDTO> consultarTodosPorCursor(String cursor, Pageable paginacao) {
+        // identifica a ordenação pedida, aceitando apenas um campo, que é desempatado pelo id
+        Sort.Order ordem = paginacao.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        if (!CAMPOS_ORDENAVEIS_POR_CURSOR.contains(ordem.getProperty())) {
+            throw new BadRequestException("Não é possível paginar por cursor ordenando pelo campo " + ordem.getProperty());
+        }
+
+        // um cursor vazio indica a primeira página. Os demais precisam ter sido gerados para a mesma ordenação
+        Object valor = null;
+        Long id = null;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorDePaginacao anterior = CursorDePaginacao.decodificar(cursor);
+            if (!anterior.getCampo().equals(ordem.getProperty()) || anterior.getDirecao() != ordem.getDirection()) {
+                throw new BadRequestException("O cursor informado não corresponde à ordenação solicitada");
+            }
+            valor = converterValorDoCursor(anterior);
+            id = anterior.getId();
+        }
+
+        // busca um registro além do tamanho da página apenas para saber se há uma próxima
+        int tamanho = paginacao.getPageSize();
+        List<PessoaDTO> pessoas = pessoaRepository.buscarPorCursor(ordem.getProperty(), ordem.isAscending(), valor, id, tamanho + 1);
+        boolean temProximo = pessoas.size() > tamanho;
+        List<PessoaDTO> conteudo = temProximo ? pessoas.subList(0, tamanho) : pessoas;
+
+        // o próximo cursor aponta para o último registro entregue nesta página
+        String proximo = null;
+        if (temProximo) {
+            PessoaDTO ultima = conteudo.get(conteudo.size() - 1);
+            proximo = new CursorDePaginacao(ordem.getProperty(), ordem.getDirection(), ultima.getId(),
+                    valorDoCursor(ultima, ordem.getProperty())).codificar();
+        }
+
+        return new PaginaPorCursorDTO<>(conteudo, conteudo.size(), temProximo, proximo);
+    }
+
+    public PaginaPorCursorDTO<PessoaDTO> consultarTodosPorCursor(String cursor, Pageable paginacao, String expand) {
+        PaginaPorCursorDTO<PessoaDTO> pagina = consultarTodosPorCursor(cursor, paginacao);
+        return new PaginaPorCursorDTO<>(expandir(pagina.getConteudo(), expand), pagina.getTamanho(), pagina.getTemProximo(), pagina.getProximo());
+    }
+
 
+    // transacional para que a pessoa lida continue gerenciada até o save, que assim não precisa de um novo select
+    @Transactional
     public PessoaDTO editar(Long id, PessoaDTO pessoaDTO) {
         // busca a pessoa no banco de dados pelo id. Caso não haja, lança uma exceção
         Pessoa pessoa = pessoaRepository.findById(id).orElseThrow(() -> {
@@ -49,13 +176,119 @@ public class PessoaService {
         });
 
         // altera apenas os campos com novos valores informados
+        LocalDate nascimentoAnterior = pessoa.getDataDeNascimento();
         if(pessoaDTO.getNome() != null) pessoa.setNome(pessoaDTO.getNome());
         if(pessoaDTO.getDataDeNascimento() != null) pessoa.setDataDeNascimento(pessoaDTO.getDataDeNascimento());
 
         // salva a alteração no banco de dados
         Pessoa pessoaEditada = pessoaRepository.save(pessoa);
 
-        // converte a pessoa alterada para DTO e retorna
-        return Parser.pessoaParaDTO(pessoaEditada);
+        // converte a pessoa alterada para DTO e retorna. O cache, o índice de nomes e os agregados só mudam depois do
+        // commit, para que uma edição desfeita nunca seja servida
+        PessoaDTO pessoaEditadaDTO = Parser.pessoaParaDTO(pessoaEditada);
+        AposCommit.executar(() -> {
+            pessoaCache.atualizar(pessoaEditadaDTO);
+            indiceDeNomes.atualizar(pessoaEditadaDTO.getId(), pessoaEditadaDTO.getNome());
+            agregadosDemograficos.registrarNascimento(nascimentoAnterior, pessoaEditadaDTO.getDataDeNascimento());
+        });
+        return pessoaEditadaDTO;
+    }
+
+    public PaginaPorCursorDTO<PessoaDTO> consultarPorFaixaDeNascimento(LocalDate inicio, LocalDate fim, String cursor, Pageable paginacao) {
+        if (inicio.isAfter(fim)) {
+            throw new BadRequestException("A data inicial deve ser anterior ou igual à data final");
+        }
+
+        // a faixa é percorrida pelo índice de data de nascimento e id, continuando após o cursor, se houver
+        LocalDate valor = null;
+        Long id = null;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorDePaginacao anterior = CursorDePaginacao.decodificar(cursor);
+            if (!anterior.getCampo().equals("dataDeNascimento") || anterior.getDirecao() != Sort.Direction.ASC) {
+                throw new BadRequestException("O cursor informado não corresponde a esta busca");
+            }
+            valor = (LocalDate) converterValorDoCursor(anterior);
+            id = anterior.getId();
+        }
+
+        int tamanho = paginacao.getPageSize();
+        List<PessoaDTO> pessoas = pessoaRepository.buscarPorFaixaDeNascimento(inicio, fim, valor, id, tamanho + 1);
+        boolean temProximo = pessoas.size() > tamanho;
+        List<PessoaDTO> conteudo = temProximo ? pessoas.subList(0, tamanho) : pessoas;
+
+        String proximo = null;
+        if (temProximo) {
+            PessoaDTO ultima = conteudo.get(conteudo.size() - 1);
+            proximo = new CursorDePaginacao("dataDeNascimento", Sort.Direction.ASC, ultima.getId(),
+                    ultima.getDataDeNascimento().toString()).codificar();
+        }
+        return new PaginaPorCursorDTO<>(conteudo, conteudo.size(), temProximo, proximo);
+    }
+
+    public Page<PessoaDTO> buscarPorNome(String nome, Pageable paginacao) {
+        if (nome == null || nome.isBlank()) {
+            throw new BadRequestException("Informe o nome a ser buscado");
+        }
+
+        // o índice em memória encontra e ordena os ids da página. O banco só é consultado para carregar essas pessoas
+        IndiceDeNomes.Resultado resultado = indiceDeNomes.buscar(nome, paginacao.getPageNumber(), paginacao.getPageSize());
+        Map<Long, PessoaDTO> pessoas = pessoaRepository.findAllById(resultado.ids()).stream()
+                .map(Parser::pessoaParaDTO)
+                .collect(Collectors.toMap(PessoaDTO::getId, Function.identity()));
+        List<PessoaDTO> pagina = resultado.ids().stream().map(pessoas::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(pagina, paginacao, resultado.total());
+    }
+
+
+    // acrescenta às pessoas todos os seus endereços ou apenas o principal, buscados em uma única consulta pelos ids de
+    // todas elas, de modo que o número de consultas não dependa do tamanho da página
+    private List<PessoaDTO> expandir(List<PessoaDTO> pessoas, String expand) {
+        List<Long> ids = pessoas.stream().map(PessoaDTO::getId).toList();
+        switch (expand) {
+            case "enderecos" -> {
+                Map<Long, List<EnderecoDTO>> enderecos = ids.isEmpty() ? Map.of() : enderecoRepository.buscarDTOsPorIdsPessoas(ids)
+                        .stream().collect(Collectors.groupingBy(EnderecoDTO::getIdPessoa));
+                return pessoas.stream().<PessoaDTO>map(pessoa -> new PessoaComEnderecosDTO(pessoa.getId(), pessoa.getNome(),
+                        pessoa.getDataDeNascimento(), enderecos.getOrDefault(pessoa.getId(), List.of()))).toList();
+            }
+            case "principal" -> {
+                Map<Long, EnderecoDTO> principais = ids.isEmpty() ? Map.of() : enderecoRepository.buscarPrincipaisPorIdsPessoas(ids)
+                        .stream().collect(Collectors.toMap(EnderecoDTO::getIdPessoa, Function.identity()));
+                return pessoas.stream().<PessoaDTO>map(pessoa -> new PessoaComEnderecoPrincipalDTO(pessoa.getId(), pessoa.getNome(),
+                        pessoa.getDataDeNascimento(), principais.get(pessoa.getId()))).toList();
+            }
+            default -> throw new BadRequestException("Expansão não suportada: " + expand);
+        }
+    }
+
+    private Map<Long, Optional<PessoaDTO>> carregarPorIds(Set<Long> ids) {
+        Map<Long, Optional<PessoaDTO>> carregadas = new HashMap<>();
+        List<Long> pendentes = new ArrayList<>(ids);
+        for (int inicio = 0; inicio < pendentes.size(); inicio += tamanhoDoIn) {
+            List<Long> bloco = pendentes.subList(inicio, Math.min(pendentes.size(), inicio + tamanhoDoIn));
+            bloco.forEach(id -> carregadas.put(id, Optional.empty()));
+            pessoaRepository.buscarDTOsPorIds(bloco).forEach(pessoa -> carregadas.put(pessoa.getId(), Optional.of(pessoa)));
+        }
+        return carregadas;
+    }
+
+    private String valorDoCursor(PessoaDTO pessoa, String campo) {
+        return switch (campo) {
+            case "nome" -> pessoa.getNome();
+            case "dataDeNascimento" -> pessoa.getDataDeNascimento().toString();
+            default -> null;
+        };
+    }
+
+    private Object converterValorDoCursor(CursorDePaginacao cursor) {
+        try {
+            return switch (cursor.getCampo()) {
+                case "nome" -> cursor.getValor();
+                case "dataDeNascimento" -> LocalDate.parse(cursor.getValor());
+                default -> null;
+            };
+        } catch (DateTimeParseException ex) {
+            throw new BadRequestException("O cursor informado é inválido");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package org.attornatus.pessoas.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class AposCommit {
+
+    // executa a ação somente depois que a transação atual for confirmada, ou imediatamente se não houver transação.
+    // Assim, caches e índices em memória nunca refletem alterações que ainda podem ser desfeitas
+    public static void executar(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package org.attornatus.pessoas.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Csv {
+
+    public static List<String> dividirLinha(String linha) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+
+            if (entreAspas) {
+                // aspas duplicadas dentro de um campo entre aspas representam uma aspa literal
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString().trim());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+
+        campos.add(campo.toString().trim());
+        return campos;
+    }
+
+    public static String escapar(Object valor) {
+        if (valor == null) return "";
+
+        // apenas campos com vírgula, aspas ou quebra de linha precisam ser envolvidos em aspas
+        String texto = valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,39 @@
+package org.attornatus.pessoas.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// posição de uma paginação por cursor: o campo e a direção da ordenação, além da chave e do id do último item
+// entregue. É transmitido ao cliente como um token opaco em base64
+@AllArgsConstructor
+@Getter
+public class CursorDePaginacao {
+
+    private static final String SEPARADOR = "|";
+
+    private String campo;
+    private Sort.Direction direcao;
+    private Long id;
+    private String valor;
+
+    public String codificar() {
+        // o valor vai por último, já que é o único campo que pode conter o separador
+        String conteudo = campo + SEPARADOR + direcao + SEPARADOR + id + SEPARADOR + (valor == null ? "" : valor);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorDePaginacao decodificar(String token) {
+        try {
+            String conteudo = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] partes = conteudo.split("\\|", 4);
+            return new CursorDePaginacao(partes[0], Sort.Direction.valueOf(partes[1]), Long.valueOf(partes[2]), partes[3]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new BadRequestException("O cursor informado é inválido");
+        }
+    }
+}
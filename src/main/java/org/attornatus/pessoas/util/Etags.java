@@ -0,0 +1,65 @@
+package org.attornatus.pessoas.util;
+
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecoPrincipalDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecosDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+
+import java.util.List;
+
+// gera etags fortes a partir do conteúdo dos dtos, sem precisar serializá-los. O hash é um FNV-1a de 64 bits
+// sobre os campos, com um separador entre eles para que valores diferentes não produzam a mesma sequência
+public class Etags {
+
+    private static final long BASE = 0xcbf29ce484222325L;
+    private static final long PRIMO = 0x100000001b3L;
+
+    // as pessoas expandidas também levam em conta os endereços embutidos
+    public static String de(PessoaDTO pessoa) {
+        long hash = misturar(BASE, pessoa);
+        if (pessoa instanceof PessoaComEnderecosDTO comEnderecos) hash = misturar(hash, comEnderecos.getEnderecos());
+        if (pessoa instanceof PessoaComEnderecoPrincipalDTO comPrincipal) hash = misturar(hash, comPrincipal.getEnderecoPrincipal());
+        return formatar(hash);
+    }
+
+    public static String de(List<EnderecoDTO> enderecos) {
+        return formatar(misturar(BASE, enderecos));
+    }
+
+    private static long misturar(long hash, List<EnderecoDTO> enderecos) {
+        hash = misturar(hash, enderecos.size());
+        for (EnderecoDTO endereco : enderecos) {
+            hash = misturar(hash, endereco);
+        }
+        return hash;
+    }
+
+    private static long misturar(long hash, EnderecoDTO endereco) {
+        if (endereco == null) return misturar(hash, (Object) null);
+        hash = misturar(hash, endereco.getId());
+        hash = misturar(hash, endereco.getLogradouro());
+        hash = misturar(hash, endereco.getCep());
+        hash = misturar(hash, endereco.getNumero());
+        hash = misturar(hash, endereco.getCidade());
+        hash = misturar(hash, endereco.getPrincipal());
+        return misturar(hash, endereco.getIdPessoa());
+    }
+
+    private static long misturar(long hash, PessoaDTO pessoa) {
+        hash = misturar(hash, pessoa.getId());
+        hash = misturar(hash, pessoa.getNome());
+        return misturar(hash, pessoa.getDataDeNascimento());
+    }
+
+    private static long misturar(long hash, Object valor) {
+        String texto = valor == null ? "\u0000" : valor.toString();
+        for (int i = 0; i < texto.length(); i++) {
+            hash = (hash ^ texto.charAt(i)) * PRIMO;
+        }
+        return (hash ^ '\u001f') * PRIMO;
+    }
+
+    private static String formatar(long hash) {
+        return '"' + Long.toHexString(hash) + '"';
+    }
+}
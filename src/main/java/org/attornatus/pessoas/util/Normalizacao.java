@@ -0,0 +1,23 @@
+package org.attornatus.pessoas.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class Normalizacao {
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern NAO_DIGITOS = Pattern.compile("[^0-9]+");
+
+    // remove acentos e diferenças entre maiúsculas e minúsculas, trocando pontuação e espaços repetidos por um só
+    // espaço, para que "São Paulo", "SAO PAULO" e "sao  paulo" sejam comparados como iguais
+    public static String texto(String texto) {
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // mantém apenas os dígitos do cep, para que "58.100-200" e "58100200" sejam comparados como iguais
+    public static String cep(String cep) {
+        return NAO_DIGITOS.matcher(cep).replaceAll("");
+    }
+}
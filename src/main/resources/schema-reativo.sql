@@ -0,0 +1,25 @@
+-- mesmo modelo das tabelas geradas pelo hibernate na versão servlet, criado explicitamente já que o r2dbc não gera
+-- o esquema. As sequences avançam de um em um porque cada insert reativo consome o próprio id
+create sequence if not exists seq_pessoas start with 1 increment by 1;
+create sequence if not exists seq_enderecos start with 1 increment by 1;
+
+create table if not exists tb_pessoas (
+    id_pessoa bigint default next value for seq_pessoas primary key,
+    nome varchar(255) not null,
+    data_de_nascimento date not null
+);
+create index if not exists idx_pessoas_nome_id on tb_pessoas (nome, id_pessoa);
+create index if not exists idx_pessoas_data_de_nascimento_id on tb_pessoas (data_de_nascimento, id_pessoa);
+
+create table if not exists enderecos (
+    id bigint default next value for seq_enderecos primary key,
+    logradouro varchar(255) not null,
+    cep varchar(255) not null,
+    numero integer not null,
+    cidade varchar(255) not null,
+    principal boolean not null,
+    id_pessoa bigint references tb_pessoas (id_pessoa),
+    id_pessoa_principal bigint generated always as (case when principal then id_pessoa end)
+);
+create index if not exists idx_enderecos_id_pessoa on enderecos (id_pessoa);
+create unique index if not exists uk_enderecos_principal_por_pessoa on enderecos (id_pessoa_principal);
@@ -0,0 +1,4 @@
+-- coluna gerada que só recebe o id da pessoa quando o endereço é o principal. O índice único sobre ela garante no
+-- próprio banco que cada pessoa tenha no máximo um endereço principal, já que valores nulos não conflitam entre si
+alter table enderecos add column id_pessoa_principal bigint generated always as (case when principal then id_pessoa end);
+create unique index uk_enderecos_principal_por_pessoa on enderecos (id_pessoa_principal);
@@ -0,0 +1,121 @@
+package org.attornatus.pessoas.admissao;
+
+import org.attornatus.pessoas.cache.RespostasIdempotentes;
+import org.attornatus.pessoas.controller.ExceptionHandlerAdvice;
+import org.attornatus.pessoas.controller.PessoaController;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.service.ExportacaoService;
+import org.attornatus.pessoas.service.PessoaService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest
+public class ControleDeAdmissaoUnitTest {
+
+    @InjectMocks
+    private ExceptionHandlerAdvice exceptionHandlerAdvice;
+    @InjectMocks
+    private PessoaController pessoaController;
+    @Mock
+    private PessoaService pessoaService;
+    @Mock
+    private ExportacaoService exportacaoService;
+    @Spy
+    private RespostasIdempotentes respostasIdempotentes = new RespostasIdempotentes(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
+    private ControleDeAdmissao controleDeAdmissao;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        // uma vaga para leituras, uma para escritas e uma para transferências, sem espaço para crescer
+        this.controleDeAdmissao = new ControleDeAdmissao(true, Duration.ofSeconds(2), 1, 1, 1, 1, 1, 1, 1);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(pessoaController, exceptionHandlerAdvice)
+                .addInterceptors(controleDeAdmissao)
+                .build();
+        Mockito.when(pessoaService.consultarPorId(1L)).thenReturn(new PessoaDTO(1L, "João", LocalDate.of(1990, 10, 5)));
+    }
+
+    @Test
+    @DisplayName("Quando há vaga, a requisição deve ser atendida e a vaga liberada ao final")
+    public void testeRequisicaoAdmitida() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Assertions.assertEquals(0, controleDeAdmissao.getLeituras().getEmAndamento());
+    }
+
+    @Test
+    @DisplayName("Quando o limite de leituras está ocupado, a leitura deve ser recusada com 503 e Retry-After, sem afetar as escritas")
+    public void testeRequisicaoRecusada() throws Exception {
+        Assertions.assertTrue(controleDeAdmissao.getLeituras().tentarAdquirir());
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1"))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "2"));
+        Mockito.verify(pessoaService, Mockito.never()).consultarPorId(1L);
+
+        Mockito.when(pessoaService.criar(Mockito.any(PessoaDTO.class))).thenReturn(new PessoaDTO(2L, "Maria", LocalDate.of(2000, 1, 25)));
+        this.mockMvc.perform(MockMvcRequestBuilders.post("/pessoa")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nome\": \"Maria\", \"dataDeNascimento\": \"2000-01-25\"}"))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+    }
+
+    @Test
+    @DisplayName("Quando uma exportação está em andamento, ela não deve ocupar nem reduzir o limite de leituras")
+    public void testeExportacaoForaDoLimiteDeLeituras() throws Exception {
+        // o limite de leituras pode variar entre 1 e 100, então uma exportação lenta contada nele o derrubaria
+        ControleDeAdmissao controle = new ControleDeAdmissao(true, Duration.ofSeconds(2), 10, 1, 100, 1, 1, 1, 1);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(pessoaController, exceptionHandlerAdvice)
+                .addInterceptors(controle)
+                .build();
+        CountDownLatch fimDaExportacao = new CountDownLatch(1);
+        Mockito.doAnswer(invocacao -> fimDaExportacao.await(5, TimeUnit.SECONDS))
+                .when(exportacaoService).exportarNdjson(Mockito.any(OutputStream.class));
+
+        MvcResult exportacao = mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/exportacao"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        Assertions.assertEquals(1, controle.getTransferencias().getEmAndamento());
+        Assertions.assertEquals(0, controle.getLeituras().getEmAndamento());
+
+        // uma segunda exportação não cabe no limite das transferências, mas as leituras seguem admitidas
+        mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/exportacao"))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1"))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        }
+
+        Thread.sleep(300);
+        fimDaExportacao.countDown();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(exportacao))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Assertions.assertEquals(0, controle.getTransferencias().getEmAndamento());
+        Assertions.assertEquals(10, controle.getLeituras().getLimite());
+    }
+}
@@ -0,0 +1,85 @@
+package org.attornatus.pessoas.admissao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LimiteAdaptativoUnitTest {
+
+    @Test
+    @DisplayName("Quando o limite é atingido, novas requisições devem ser recusadas até que uma vaga seja liberada")
+    public void testeRecusaAcimaDoLimite() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(2, 1, 10);
+
+        Assertions.assertTrue(limite.tentarAdquirir());
+        Assertions.assertTrue(limite.tentarAdquirir());
+        Assertions.assertFalse(limite.tentarAdquirir());
+        Assertions.assertEquals(2, limite.getEmAndamento());
+
+        limite.liberar(10, TimeUnit.MILLISECONDS);
+        Assertions.assertTrue(limite.tentarAdquirir());
+    }
+
+    @Test
+    @DisplayName("Quando a latência se mantém estável com o limite em uso, o limite deve crescer")
+    public void testeCrescimentoComLatenciaEstavel() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(20, 5, 200);
+
+        for (int i = 0; i < 200; i++) ocuparEMedir(limite, 10);
+
+        Assertions.assertTrue(limite.getLimite() > 20, "limite: " + limite.getLimite());
+    }
+
+    @Test
+    @DisplayName("Quando a latência sobe bem acima da média, o limite deve cair logo em seguida sem passar do mínimo")
+    public void testeQuedaComLatenciaAlta() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(100, 5, 200);
+        for (int i = 0; i < 50; i++) ocuparEMedir(limite, 10);
+        int antes = limite.getLimite();
+
+        // uma lentidão prolongada acaba virando a nova média, então a queda é verificada logo após o aumento
+        for (int i = 0; i < 2; i++) ocuparEMedir(limite, 200);
+
+        Assertions.assertTrue(limite.getLimite() < antes / 2, "antes: " + antes + ", depois: " + limite.getLimite());
+        Assertions.assertTrue(limite.getLimite() >= 5);
+    }
+
+    @Test
+    @DisplayName("Quando o limite está pouco usado, a latência não deve fazê-lo crescer")
+    public void testeSemCrescimentoComPoucoUso() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(20, 5, 200);
+
+        for (int i = 0; i < 200; i++) {
+            limite.tentarAdquirir();
+            limite.liberar(10, TimeUnit.MILLISECONDS);
+        }
+
+        Assertions.assertEquals(20, limite.getLimite());
+    }
+
+    @Test
+    @DisplayName("Quando a latência sobe com o limite pouco usado, o limite deve cair mesmo assim")
+    public void testeQuedaComPoucoUso() {
+        LimiteAdaptativo limite = new LimiteAdaptativo(100, 5, 200);
+        for (int i = 0; i < 50; i++) {
+            limite.tentarAdquirir();
+            limite.liberar(10, TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            limite.tentarAdquirir();
+            limite.liberar(500, TimeUnit.MILLISECONDS);
+        }
+
+        Assertions.assertTrue(limite.getLimite() < 50, "limite: " + limite.getLimite());
+    }
+
+    // ocupa todas as vagas e libera uma com a latência informada, simulando o limite em uso pleno
+    private void ocuparEMedir(LimiteAdaptativo limite, long latenciaEmMilissegundos) {
+        while (limite.tentarAdquirir()) ;
+        limite.liberar(latenciaEmMilissegundos, TimeUnit.MILLISECONDS);
+        while (limite.getEmAndamento() > 0) limite.liberar(latenciaEmMilissegundos, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,164 @@
+package org.attornatus.pessoas.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CargaUnicaUnitTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CargaUnica<Long, String> cargaUnica = new CargaUnica<>("teste", Duration.ofSeconds(30));
+
+    @Test
+    @DisplayName("Quando várias consultas à mesma chave chegam durante uma carga, devem compartilhar o seu resultado")
+    public void testeCargasSimultaneas() throws Exception {
+        cargaUnica.bindTo(registry);
+        AtomicInteger cargas = new AtomicInteger();
+        CountDownLatch liberacao = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<String>> resultados = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            resultados.add(executor.submit(() -> cargaUnica.carregar(1L, () -> {
+                try {
+                    liberacao.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return "carga " + cargas.incrementAndGet();
+            })));
+        }
+        Thread.sleep(100);
+        liberacao.countDown();
+
+        for (Future<String> resultado : resultados) {
+            Assertions.assertEquals("carga 1", resultado.get());
+        }
+        Assertions.assertEquals(1, cargas.get());
+        Assertions.assertEquals(1, contagem("executada"));
+        Assertions.assertEquals(7, contagem("compartilhada"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Quando a carga falha, quem a aguardava deve receber a mesma exceção, e a próxima consulta deve carregar de novo")
+    public void testeFalhaNaCarga() throws Exception {
+        CountDownLatch carregando = new CountDownLatch(1);
+        CountDownLatch liberacao = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<String> primeira = executor.submit(() -> cargaUnica.carregar(1L, () -> {
+            carregando.countDown();
+            try {
+                liberacao.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            throw new EntityNotFoundException("Não existe nenhuma pessoa com o id 1");
+        }));
+        carregando.await();
+        Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignorada) {
+            }
+            liberacao.countDown();
+        });
+
+        Assertions.assertThrows(EntityNotFoundException.class, () -> cargaUnica.carregar(1L, () -> "não deveria carregar"));
+        Exception ex = Assertions.assertThrows(Exception.class, primeira::get);
+        Assertions.assertInstanceOf(EntityNotFoundException.class, ex.getCause());
+        Assertions.assertEquals("nova carga", cargaUnica.carregar(1L, () -> "nova carga"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Quando a carga lança um Error, a chave deve ser liberada e quem aguardava deve receber o mesmo erro")
+    public void testeErrorNaCarga() throws Exception {
+        CountDownLatch carregando = new CountDownLatch(1);
+        CountDownLatch liberacao = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<String> primeira = executor.submit(() -> cargaUnica.carregar(1L, () -> {
+            carregando.countDown();
+            try {
+                liberacao.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            throw new StackOverflowError();
+        }));
+        carregando.await();
+        Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignorada) {
+            }
+            liberacao.countDown();
+        });
+
+        Assertions.assertThrows(StackOverflowError.class, () -> cargaUnica.carregar(1L, () -> "não deveria carregar"));
+        Exception ex = Assertions.assertThrows(Exception.class, primeira::get);
+        Assertions.assertInstanceOf(StackOverflowError.class, ex.getCause());
+        Assertions.assertEquals("nova carga", cargaUnica.carregar(1L, () -> "nova carga"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Quando a carga demora além da espera máxima, quem aguardava deve receber ServicoIndisponivelException")
+    public void testeEsperaLimitada() throws Exception {
+        CargaUnica<Long, String> comEsperaCurta = new CargaUnica<>("teste", Duration.ofMillis(100));
+        CountDownLatch carregando = new CountDownLatch(1);
+        CountDownLatch liberacao = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> primeira = executor.submit(() -> comEsperaCurta.carregar(1L, () -> {
+                carregando.countDown();
+                try {
+                    liberacao.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return "lenta";
+            }));
+            carregando.await();
+
+            Assertions.assertThrows(ServicoIndisponivelException.class, () -> comEsperaCurta.carregar(1L, () -> "não deveria carregar"));
+
+            liberacao.countDown();
+            Assertions.assertEquals("lenta", primeira.get());
+        } finally {
+            liberacao.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Quando as consultas não são simultâneas ou são de chaves diferentes, cada uma deve fazer sua própria carga")
+    public void testeCargasIndependentes() {
+        cargaUnica.bindTo(registry);
+
+        Assertions.assertEquals("a", cargaUnica.carregar(1L, () -> "a"));
+        Assertions.assertEquals("b", cargaUnica.carregar(1L, () -> "b"));
+        Assertions.assertEquals("c", cargaUnica.carregar(2L, () -> "c"));
+
+        Assertions.assertEquals(3, contagem("executada"));
+        Assertions.assertEquals(0, contagem("compartilhada"));
+    }
+
+    private double contagem(String resultado) {
+        return registry.get("pessoas.cache.cargas").tag("cache", "teste").tag("resultado", resultado).counter().count();
+    }
+}
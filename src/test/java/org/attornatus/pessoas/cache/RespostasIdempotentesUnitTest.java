@@ -0,0 +1,116 @@
+package org.attornatus.pessoas.cache;
+
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RespostasIdempotentesUnitTest {
+
+    private final RespostasIdempotentes respostasIdempotentes = new RespostasIdempotentes(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
+    @Test
+    @DisplayName("Quando várias requisições com a mesma chave chegam em paralelo, a ação deve ser executada uma única vez")
+    public void testeRequisicoesSimultaneas() throws Exception {
+        AtomicInteger execucoes = new AtomicInteger();
+        CountDownLatch liberacao = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<Integer>> respostas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            respostas.add(executor.submit(() -> respostasIdempotentes.executar("criar", "chave", "corpo", () -> {
+                try {
+                    liberacao.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return execucoes.incrementAndGet();
+            })));
+        }
+        Thread.sleep(100);
+        liberacao.countDown();
+
+        for (Future<Integer> resposta : respostas) {
+            Assertions.assertEquals(1, resposta.get());
+        }
+        Assertions.assertEquals(1, execucoes.get());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Quando a primeira execução falha, o erro não deve ser guardado e a próxima tentativa deve executar de novo")
+    public void testeFalhaNaoEGuardada() {
+        Assertions.assertThrows(IllegalStateException.class, () -> respostasIdempotentes.executar("criar", "falha", "corpo", () -> {
+            throw new IllegalStateException("falha");
+        }));
+
+        Assertions.assertEquals("ok", respostasIdempotentes.executar("criar", "falha", "corpo", () -> "ok"));
+    }
+
+    @Test
+    @DisplayName("Quando a primeira execução lança um Error, a chave deve ser liberada para a próxima tentativa")
+    public void testeErrorNaoPrendeAChave() {
+        Assertions.assertThrows(StackOverflowError.class, () -> respostasIdempotentes.executar("criar", "error", "corpo", () -> {
+            throw new StackOverflowError();
+        }));
+
+        Assertions.assertEquals("ok", respostasIdempotentes.executar("criar", "error", "corpo", () -> "ok"));
+    }
+
+    @Test
+    @DisplayName("Quando a primeira execução demora além da espera máxima, a repetição deve ser recusada com ServicoIndisponivelException")
+    public void testeEsperaLimitada() throws Exception {
+        RespostasIdempotentes comEsperaCurta = new RespostasIdempotentes(100, Duration.ofMinutes(10), Duration.ofMillis(100));
+        CountDownLatch executando = new CountDownLatch(1);
+        CountDownLatch liberacao = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> primeira = executor.submit(() -> comEsperaCurta.executar("criar", "lenta", "corpo", () -> {
+                executando.countDown();
+                try {
+                    liberacao.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                return "ok";
+            }));
+            executando.await();
+
+            Assertions.assertThrows(ServicoIndisponivelException.class,
+                    () -> comEsperaCurta.executar("criar", "lenta", "corpo", () -> "não deveria executar"));
+
+            liberacao.countDown();
+            Assertions.assertEquals("ok", primeira.get());
+            Assertions.assertEquals("ok", comEsperaCurta.executar("criar", "lenta", "corpo", () -> "não deveria executar"));
+        } finally {
+            liberacao.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Quando a chave é reutilizada com outra requisição ou é inválida, deve lançar BadRequestException")
+    public void testeChaveInvalida() {
+        respostasIdempotentes.executar("criar", "reutilizada", "corpo", () -> "ok");
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> respostasIdempotentes.executar("criar", "reutilizada", "outro corpo", () -> "ok"));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> respostasIdempotentes.executar("criar", " ", "corpo", () -> "ok"));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> respostasIdempotentes.executar("criar", "x".repeat(256), "corpo", () -> "ok"));
+
+        // a mesma chave em outra operação é independente
+        Assertions.assertEquals("outra", respostasIdempotentes.executar("editar", "reutilizada", "outro corpo", () -> "outra"));
+    }
+}
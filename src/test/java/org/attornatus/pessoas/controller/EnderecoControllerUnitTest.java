@@ -2,23 +2,30 @@ package org.attornatus.pessoas.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.cache.RespostasIdempotentes;
 import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.ErroImportacaoDTO;
 import org.attornatus.pessoas.dto.IdEnderecoDTO;
+import org.attornatus.pessoas.dto.RelatorioImportacaoDTO;
 import org.attornatus.pessoas.exception.BadRequestException;
 import org.attornatus.pessoas.model.Pessoa;
 import org.attornatus.pessoas.service.EnderecoService;
+import org.attornatus.pessoas.service.ImportacaoService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.*;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -40,6 +47,10 @@ public class EnderecoControllerUnitTest {
     private EnderecoController enderecoController;
     @Mock
     private EnderecoService enderecoService;
+    @Mock
+    private ImportacaoService importacaoService;
+    @Spy
+    private RespostasIdempotentes respostasIdempotentes = new RespostasIdempotentes(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
 
     private MockMvc mockMvc;
     private ObjectMapper objectMapper;
@@ -182,4 +193,39 @@ public class EnderecoControllerUnitTest {
                         .content(idEnderecoDTOJson1))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("Quando chama o método importar com ndjson, deve retornar o relatório da importação com o código 200")
+    public void testeMetodoImportar() throws Exception {
+        RelatorioImportacaoDTO relatorio = new RelatorioImportacaoDTO(1L, 0L,
+                List.of(new ErroImportacaoDTO(1L, List.of("Não existe nenhuma pessoa com o id 1"))));
+        Mockito.when(importacaoService.importarEnderecos(Mockito.any(), Mockito.eq(false))).thenReturn(relatorio);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.post("/endereco/importacao")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(enderecoDTOJson1))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.importados", Matchers.is(0)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.erros[0].mensagens[0]", Matchers.is("Não existe nenhuma pessoa com o id 1")));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método buscarEnderecosDaPessoa com o etag atual, retorna o status 304 Not Modified sem corpo")
+    public void testeMetodoBuscarEnderecosDaPessoaComEtag() throws Exception {
+        Mockito.when(enderecoService.buscarEnderecosDaPessoa(1L)).thenReturn(List.of(enderecoDTO1, enderecoDTO2));
+
+        String etag = this.mockMvc.perform(MockMvcRequestBuilders.get("/endereco/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/endereco/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Mockito.when(enderecoService.buscarEnderecosDaPessoa(1L)).thenReturn(List.of(enderecoDTO1));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/endereco/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()", Matchers.is(1)));
+    }
 }
@@ -4,21 +4,43 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.cache.RespostasIdempotentes;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.ErroImportacaoDTO;
+import org.attornatus.pessoas.dto.PaginaPorCursorDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecoPrincipalDTO;
 import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.dto.PessoasPorIdsDTO;
+import org.attornatus.pessoas.dto.RelatorioImportacaoDTO;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.attornatus.pessoas.service.ExportacaoService;
+import org.attornatus.pessoas.service.ImportacaoService;
 import org.attornatus.pessoas.service.PessoaService;
+import org.attornatus.pessoas.util.Etags;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.*;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @SpringBootTest
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -35,13 +57,21 @@ public class PessoaControllerUnitTest {
     private PessoaController pessoaController;
     @Mock
     private PessoaService pessoaService;
+    @Mock
+    private ImportacaoService importacaoService;
+    @Mock
+    private ExportacaoService exportacaoService;
+    @Spy
+    private RespostasIdempotentes respostasIdempotentes = new RespostasIdempotentes(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
 
     private MockMvc mockMvc;
     private ObjectMapper objectMapper;
 
     @BeforeAll
     public void initMockMvc() {
-        this.mockMvc = MockMvcBuilders.standaloneSetup(pessoaController, exceptionHandlerAdvice).build();
+        this.mockMvc = MockMvcBuilders.standaloneSetup(pessoaController, exceptionHandlerAdvice)
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .build();
         this.objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
     }
 
@@ -76,6 +106,48 @@ public class PessoaControllerUnitTest {
     }
 
 
+    @Test
+    @DisplayName("Quando o método criar é repetido com a mesma Idempotency-Key, deve retornar a resposta original sem criar de novo")
+    public void testeMetodoCriarComChaveDeIdempotencia() throws Exception {
+        Mockito.clearInvocations(pessoaService);
+        Mockito.when(pessoaService.criar(Mockito.any(PessoaDTO.class))).thenAnswer(invocationOnMock -> {
+            PessoaDTO pessoaDTO = (PessoaDTO) invocationOnMock.getArguments()[0];
+            return new PessoaDTO(7L, pessoaDTO.getNome(), pessoaDTO.getDataDeNascimento());
+        });
+
+        for (int tentativa = 0; tentativa < 3; tentativa++) {
+            this.mockMvc.perform(MockMvcRequestBuilders.post("/pessoa")
+                            .header("Idempotency-Key", "criacao-repetida")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(pessoaDTOJson1))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.id", Matchers.is(7)));
+        }
+        Mockito.verify(pessoaService, Mockito.times(1)).criar(Mockito.any(PessoaDTO.class));
+
+        // a mesma chave com outro corpo é recusada
+        this.mockMvc.perform(MockMvcRequestBuilders.post("/pessoa")
+                        .header("Idempotency-Key", "criacao-repetida")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(pessoaDTOJson2))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+
+    @Test
+    @DisplayName("Quando a fila de gravação está cheia, o método criar deve retornar o status 503 com o cabeçalho Retry-After")
+    public void testeMetodoCriarComFilaCheia() throws Exception {
+        Mockito.when(pessoaService.criar(Mockito.any(PessoaDTO.class)))
+                .thenThrow(new ServicoIndisponivelException("Muitas criações aguardando gravação", Duration.ofMillis(1500)));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.post("/pessoa")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(pessoaDTOJson1))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+
+
     @Test
     @DisplayName("Quando chama o método criar com campos nulos, deve retornar o status 400 Bad Request")
     public void testeMetodoCriarComCamposNulos() throws Exception {
@@ -155,4 +227,144 @@ public class PessoaControllerUnitTest {
                         .content(pessoaDTOJson1))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
-}
\ No newline at end of file
+
+
+    @Test
+    @DisplayName("Quando chama o método importar com um csv, deve retornar o relatório da importação com o código 200")
+    public void testeMetodoImportar() throws Exception {
+        RelatorioImportacaoDTO relatorio = new RelatorioImportacaoDTO(2L, 1L,
+                List.of(new ErroImportacaoDTO(2L, List.of("Campo nome não pode ser nulo ou estar vazio"))));
+        Mockito.when(importacaoService.importarPessoas(Mockito.any(), Mockito.eq(true))).thenReturn(relatorio);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.post("/pessoa/importacao")
+                        .contentType("text/csv")
+                        .content("João,1990-10-05\n,2000-01-25\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.linhasProcessadas", Matchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.importados", Matchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.erros[0].linha", Matchers.is(2)));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorId com expand, deve retornar a pessoa com o endereço principal embutido")
+    public void testeMetodoConsultarPorIdComExpand() throws Exception {
+        EnderecoDTO principal = new EnderecoDTO(3L, "Rua 1", "58.100-200", 10, "cidade 1", true, 1L);
+        Mockito.when(pessoaService.consultarPorId(1L, "principal")).thenReturn(new PessoaComEnderecoPrincipalDTO(
+                1L, pessoaDTO1.getNome(), pessoaDTO1.getDataDeNascimento(), principal));
+
+        MvcResult resultado = this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1")
+                        .param("expand", "principal")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.enderecoPrincipal.id", Matchers.is(3)))
+                .andReturn();
+
+        // o etag da pessoa expandida muda junto com o endereço embutido
+        Assertions.assertNotEquals(Etags.de(pessoaDTO1), resultado.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorIds, deve retornar as pessoas encontradas, os ids ausentes e o status 200")
+    public void testeMetodoConsultarPorIds() throws Exception {
+        Mockito.when(pessoaService.consultarPorIds(List.of(1L, 5L)))
+                .thenReturn(new PessoasPorIdsDTO(List.of(pessoaDTO1), List.of(5L)));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa")
+                        .param("ids", "1,5")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.pessoas[0].id", Matchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.naoEncontrados[0]", Matchers.is(5)));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorIds junto com um cursor, deve retornar o status 400 Bad Request")
+    public void testeMetodoConsultarPorIdsComCursor() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa")
+                        .param("ids", "1,5")
+                        .param("after", "")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método buscarPorNome, deve retornar a página encontrada e o status 200")
+    public void testeMetodoBuscarPorNome() throws Exception {
+        Mockito.when(pessoaService.buscarPorNome(Mockito.eq("jo"), Mockito.any()))
+                .thenReturn(new PageImpl<>(List.of(pessoaDTO1), PageRequest.of(0, 20), 1));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/busca")
+                        .param("nome", "jo")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id", Matchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements", Matchers.is(1)));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarTodosPorCursor, deve retornar a página com o próximo cursor e o status 200")
+    public void testeMetodoConsultarTodosPorCursor() throws Exception {
+        Mockito.when(pessoaService.consultarTodosPorCursor(Mockito.eq(""), Mockito.any()))
+                .thenReturn(new PaginaPorCursorDTO<>(List.of(pessoaDTO1), 1, true, "abc"));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa")
+                        .param("after", "")
+                        .param("size", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.conteudo[0].id", Matchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.temProximo", Matchers.is(true)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.proximo", Matchers.is("abc")));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método exportar com gzip, deve compactar a resposta e informar a codificação")
+    public void testeMetodoExportarComGzip() throws Exception {
+        Mockito.doAnswer(invocationOnMock -> {
+            ((OutputStream) invocationOnMock.getArguments()[0]).write("{}\n".getBytes());
+            return null;
+        }).when(exportacaoService).exportarNdjson(Mockito.any());
+
+        MvcResult resultado = this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/exportacao")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        byte[] corpo = this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Assertions.assertEquals("{}\n", new String(new GZIPInputStream(new ByteArrayInputStream(corpo)).readAllBytes()));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método exportar com um formato desconhecido, deve retornar o status 400 Bad Request")
+    public void testeMetodoExportarComFormatoInvalido() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/exportacao").param("formato", "xml"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorId com o etag atual, retorna o status 304 Not Modified sem corpo")
+    public void testeMetodoConsultarPorIdComEtag() throws Exception {
+        Mockito.when(pessoaService.consultarPorId(1L)).thenReturn(pessoaDTO1);
+
+        String etag = this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        // uma alteração na pessoa deve mudar o etag e fazer o corpo voltar a ser enviado
+        Mockito.when(pessoaService.consultarPorId(1L)).thenReturn(new PessoaDTO(1L, "Pedro", pessoaDTO1.getDataDeNascimento()));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nome", Matchers.is("Pedro")));
+    }
+}
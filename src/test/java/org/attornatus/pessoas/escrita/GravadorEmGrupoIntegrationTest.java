@@ -0,0 +1,198 @@
+package org.attornatus.pessoas.escrita;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.service.EnderecoService;
+import org.attornatus.pessoas.service.PessoaService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// usa um banco próprio para que o contexto com a gravação em grupo não recrie as tabelas dos demais testes
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:escrita-agrupada",
+        "pessoas.escrita-agrupada.habilitada=true",
+        "pessoas.escrita-agrupada.tamanho-da-fila=1000",
+        "pessoas.escrita-agrupada.tamanho-do-lote=50",
+        "pessoas.escrita-agrupada.janela=20ms"
+})
+public class GravadorEmGrupoIntegrationTest {
+
+    @Autowired
+    private PessoaService pessoaService;
+    @Autowired
+    private EnderecoService enderecoService;
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private GravadorEmGrupo gravadorEmGrupo;
+
+    @Test
+    @DisplayName("Quando várias pessoas são criadas em paralelo, cada requisição deve receber o id gerado já gravado no db")
+    public void testeCriarPessoasEmParalelo() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<PessoaDTO>> criacoes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            PessoaDTO pessoaDTO = new PessoaDTO(null, "Pessoa " + i, LocalDate.of(1990, 1, 1).plusDays(i));
+            criacoes.add(executor.submit(() -> {
+                largada.await();
+                return pessoaService.criar(pessoaDTO);
+            }));
+        }
+        largada.countDown();
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<PessoaDTO> criacao : criacoes) {
+            PessoaDTO criada = criacao.get();
+            Assertions.assertNotNull(criada.getId());
+            Assertions.assertTrue(pessoaRepository.existsById(criada.getId()));
+            ids.add(criada.getId());
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(200, ids.size());
+        Assertions.assertEquals("Pessoa 0", pessoaService.consultarPorId(criacoes.get(0).get().getId()).getNome());
+    }
+
+    @Test
+    @DisplayName("Quando um endereço é criado com a gravação em grupo, deve ser ligado à pessoa e retornado com o id gerado")
+    public void testeCriarEndereco() {
+        Pessoa pessoa = pessoaRepository.save(new Pessoa(null, "João", LocalDate.of(1990, 10, 5)));
+
+        EnderecoDTO criado = enderecoService.criar(new EnderecoDTO(null, "Rua A", "58.100-200", 10, "Campina Grande", null, pessoa.getId()));
+
+        Assertions.assertNotNull(criado.getId());
+        Assertions.assertEquals(pessoa.getId(), criado.getIdPessoa());
+        Assertions.assertEquals(pessoa.getId(), enderecoRepository.findById(criado.getId()).orElseThrow().getPessoa().getId());
+        Assertions.assertEquals(1, enderecoService.buscarEnderecosDaPessoa(pessoa.getId()).size());
+        Assertions.assertThrows(EntityNotFoundException.class,
+                () -> enderecoService.criar(new EnderecoDTO(null, "Rua A", "58.100-200", 10, "Campina Grande", null, -1L)));
+    }
+
+    @Test
+    @DisplayName("Quando uma criação do lote é inválida, apenas ela deve falhar e as demais devem ser gravadas")
+    public void testeFalhaIsoladaNoLote() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<PessoaDTO>> criacoes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            // a pessoa sem nome viola a restrição not null da tabela
+            PessoaDTO pessoaDTO = new PessoaDTO(null, i == 2 ? null : "Pessoa " + i, LocalDate.of(1990, 1, 1));
+            criacoes.add(executor.submit(() -> {
+                largada.await();
+                return pessoaService.criar(pessoaDTO);
+            }));
+        }
+        largada.countDown();
+
+        for (int i = 0; i < 4; i++) {
+            Future<PessoaDTO> criacao = criacoes.get(i);
+            if (i == 2) {
+                Exception ex = Assertions.assertThrows(Exception.class, criacao::get);
+                Assertions.assertInstanceOf(DataIntegrityViolationException.class, ex.getCause());
+            } else {
+                Assertions.assertTrue(pessoaRepository.existsById(criacao.get().getId()));
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Quando a fila está cheia, a criação deve ser recusada com ServicoIndisponivelException")
+    public void testeFilaCheia() throws Exception {
+        GravadorEmGrupo gravador = new GravadorEmGrupo(true, 1, 1, Duration.ofMillis(1), Duration.ofSeconds(30));
+
+        // a transação do primeiro lote fica presa até a liberação, enquanto a fila de uma posição é ocupada
+        CountDownLatch gravando = new CountDownLatch(1);
+        CountDownLatch liberacao = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        Mockito.doAnswer(invocation -> {
+            gravando.countDown();
+            liberacao.await();
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(Mockito.any());
+        ReflectionTestUtils.setField(gravador, "transactionTemplate", transactionTemplate);
+        gravador.afterPropertiesSet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Pessoa> primeira = executor.submit(() -> gravador.gravar(new Pessoa(null, "Pessoa 1", LocalDate.of(1990, 1, 1))));
+            gravando.await();
+            Future<Pessoa> segunda = executor.submit(() -> gravador.gravar(new Pessoa(null, "Pessoa 2", LocalDate.of(1990, 1, 1))));
+            while (gravador.tamanhoDaFila() == 0) Thread.onSpinWait();
+
+            Assertions.assertThrows(ServicoIndisponivelException.class,
+                    () -> gravador.gravar(new Pessoa(null, "Pessoa 3", LocalDate.of(1990, 1, 1))));
+
+            liberacao.countDown();
+            Assertions.assertEquals("Pessoa 1", primeira.get().getNome());
+            Assertions.assertEquals("Pessoa 2", segunda.get().getNome());
+        } finally {
+            liberacao.countDown();
+            executor.shutdown();
+            gravador.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Quando a aplicação é encerrada com criações na fila, elas devem falhar em vez de prender os chamadores")
+    public void testeEncerramentoComFilaPendente() throws Exception {
+        GravadorEmGrupo gravador = new GravadorEmGrupo(true, 10, 1, Duration.ofMillis(1), Duration.ofMillis(200));
+
+        // a transação do primeiro lote fica presa além da espera do encerramento, deixando o segundo pedido na fila
+        CountDownLatch gravando = new CountDownLatch(1);
+        CountDownLatch liberacao = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        Mockito.doAnswer(invocation -> {
+            gravando.countDown();
+            liberacao.await();
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(Mockito.any());
+        ReflectionTestUtils.setField(gravador, "transactionTemplate", transactionTemplate);
+        gravador.afterPropertiesSet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> gravador.gravar(new Pessoa(null, "Pessoa 1", LocalDate.of(1990, 1, 1))));
+            gravando.await();
+            Future<Pessoa> pendente = executor.submit(() -> gravador.gravar(new Pessoa(null, "Pessoa 2", LocalDate.of(1990, 1, 1))));
+            while (gravador.tamanhoDaFila() == 0) Thread.onSpinWait();
+
+            gravador.destroy();
+
+            Exception ex = Assertions.assertThrows(Exception.class, () -> pendente.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(ServicoIndisponivelException.class, ex.getCause());
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> gravador.gravar(new Pessoa(null, "Pessoa 3", LocalDate.of(1990, 1, 1))));
+        } finally {
+            liberacao.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.attornatus.pessoas.indice;
+
+import org.attornatus.pessoas.dto.EstatisticasDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public class AgregadosDemograficosUnitTest {
+    private static final LocalDate HOJE = LocalDate.of(2024, 6, 15);
+
+    private AgregadosDemograficos agregadosDemograficos;
+
+    @BeforeEach
+    public void setUp() {
+        this.agregadosDemograficos = new AgregadosDemograficos();
+        agregadosDemograficos.registrarNascimento(null, LocalDate.of(2006, 6, 15));
+        agregadosDemograficos.registrarNascimento(null, LocalDate.of(2006, 6, 16));
+        agregadosDemograficos.registrarNascimento(null, LocalDate.of(1960, 1, 1));
+    }
+
+
+    @Test
+    @DisplayName("Quando consulta as estatísticas, deve contar por ano e por faixa etária considerando a data exata")
+    public void testeConsultarPorAnoEFaixa() {
+        EstatisticasDTO estatisticas = agregadosDemograficos.consultar(HOJE);
+
+        // quem nasceu em 15/06/2006 completa 18 anos hoje, enquanto quem nasceu no dia seguinte ainda tem 17
+        Assertions.assertEquals(3, estatisticas.getTotalDePessoas());
+        Assertions.assertEquals(Map.of(1960, 1L, 2006, 2L), estatisticas.getPorAnoDeNascimento());
+        Assertions.assertEquals(1, estatisticas.getPorFaixaEtaria().get("0-17"));
+        Assertions.assertEquals(1, estatisticas.getPorFaixaEtaria().get("18-29"));
+        Assertions.assertEquals(1, estatisticas.getPorFaixaEtaria().get("60+"));
+    }
+
+    @Test
+    @DisplayName("Quando a data de nascimento ou a cidade principal muda, deve descontar o valor anterior")
+    public void testeAtualizarValores() {
+        agregadosDemograficos.registrarNascimento(LocalDate.of(1960, 1, 1), LocalDate.of(1990, 1, 1));
+        agregadosDemograficos.definirCidadePrincipal(1L, "recife");
+        agregadosDemograficos.definirCidadePrincipal(2L, "recife");
+        agregadosDemograficos.definirCidadePrincipal(1L, "natal");
+
+        EstatisticasDTO estatisticas = agregadosDemograficos.consultar(HOJE);
+
+        Assertions.assertEquals(Map.of(1990, 1L, 2006, 2L), estatisticas.getPorAnoDeNascimento());
+        Assertions.assertEquals(0, estatisticas.getPorFaixaEtaria().get("60+"));
+        Assertions.assertEquals(Map.of("natal", 1L, "recife", 1L), estatisticas.getPorCidadePrincipal());
+    }
+
+    @Test
+    @DisplayName("Quando há escritas enquanto o banco é lido na reconstrução, elas devem ser mantidas nas contagens novas")
+    public void testeReconstruirComEscritasConcorrentes() {
+        // a leitura do banco não vê as escritas confirmadas depois dela, que chegam enquanto as cidades são lidas
+        agregadosDemograficos.reconstruir(
+                () -> Map.of(LocalDate.of(1990, 1, 1), 2L),
+                () -> {
+                    agregadosDemograficos.registrarNascimento(null, LocalDate.of(2000, 1, 1));
+                    agregadosDemograficos.definirCidadePrincipal(3L, "natal");
+                    agregadosDemograficos.definirCidadePrincipal(1L, "natal");
+                    return Map.of(1L, "recife", 2L, "recife");
+                });
+
+        EstatisticasDTO estatisticas = agregadosDemograficos.consultar(HOJE);
+
+        Assertions.assertEquals(3, estatisticas.getTotalDePessoas());
+        Assertions.assertEquals(Map.of(1990, 2L, 2000, 1L), estatisticas.getPorAnoDeNascimento());
+        Assertions.assertEquals(Map.of("natal", 2L, "recife", 1L), estatisticas.getPorCidadePrincipal());
+
+        // depois da troca, as escritas voltam a ser aplicadas só uma vez
+        agregadosDemograficos.registrarNascimento(null, LocalDate.of(2000, 1, 1));
+        Assertions.assertEquals(4, agregadosDemograficos.consultar(HOJE).getTotalDePessoas());
+    }
+}
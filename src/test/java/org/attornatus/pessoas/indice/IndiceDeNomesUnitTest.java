@@ -0,0 +1,81 @@
+package org.attornatus.pessoas.indice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class IndiceDeNomesUnitTest {
+    private IndiceDeNomes indiceDeNomes;
+
+    @BeforeEach
+    public void setUp() {
+        this.indiceDeNomes = new IndiceDeNomes();
+        indiceDeNomes.atualizar(1L, "José da Conceição");
+        indiceDeNomes.atualizar(2L, "Maria José Araújo");
+        indiceDeNomes.atualizar(3L, "Josefa Souza");
+        indiceDeNomes.atualizar(4L, "João Santos");
+    }
+
+
+    @Test
+    @DisplayName("Quando busca um nome, deve ignorar acentos e maiúsculas e ordenar pela relevância")
+    public void testeBuscarIgnorandoAcentos() {
+        // a palavra inteira vem antes do prefixo e, entre iguais, o nome mais curto vem antes
+        Assertions.assertEquals(List.of(1L, 2L, 3L), indiceDeNomes.buscar("JOSE", 0, 10).ids());
+        Assertions.assertEquals(List.of(1L), indiceDeNomes.buscar("conceicao jose", 0, 10).ids());
+        Assertions.assertEquals(List.of(2L), indiceDeNomes.buscar("raúj", 0, 10).ids());
+    }
+
+    @Test
+    @DisplayName("Quando busca por prefixos curtos, deve encontrar apenas as palavras que começam por eles")
+    public void testeBuscarPorPrefixoCurto() {
+        IndiceDeNomes.Resultado resultado = indiceDeNomes.buscar("j", 1, 2);
+
+        Assertions.assertEquals(4, resultado.total());
+        Assertions.assertEquals(2, resultado.ids().size());
+        Assertions.assertEquals(List.of(), indiceDeNomes.buscar("os", 0, 10).ids());
+    }
+
+    @Test
+    @DisplayName("Quando um nome é alterado, as buscas devem refletir apenas o nome novo")
+    public void testeAtualizarNome() {
+        indiceDeNomes.atualizar(4L, "Pedro Santos");
+
+        Assertions.assertEquals(List.of(3L, 1L, 2L), indiceDeNomes.buscar("jo", 0, 10).ids());
+        Assertions.assertEquals(List.of(4L), indiceDeNomes.buscar("pedro", 0, 10).ids());
+        Assertions.assertEquals(4, indiceDeNomes.tamanho());
+    }
+
+    @Test
+    @DisplayName("Quando a página pedida está muito além do total, deve retornar uma página vazia sem estourar o cálculo")
+    public void testeBuscarPaginaMuitoGrande() {
+        IndiceDeNomes.Resultado resultado = indiceDeNomes.buscar("jose", Integer.MAX_VALUE, 2000);
+
+        Assertions.assertEquals(List.of(), resultado.ids());
+        Assertions.assertEquals(3, resultado.total());
+        Assertions.assertEquals(List.of(1L, 2L, 3L), indiceDeNomes.buscar("jose", 0, Integer.MAX_VALUE).ids());
+    }
+
+    @Test
+    @DisplayName("Quando o termo é muito comum, deve parar ao completar a página sem perder nomes mais relevantes")
+    public void testeBuscarTermoComum() {
+        for (long id = 10; id < 6010; id++) {
+            indiceDeNomes.atualizar(id, id % 2 == 0 ? "Joana Lima" : "Joaquim Lima");
+        }
+        indiceDeNomes.atualizar(7000L, "Jo");
+        indiceDeNomes.atualizar(7001L, "Jo Lima");
+        indiceDeNomes.atualizar(7002L, "Joaquim Jo Lima Souza Costa");
+
+        // os nomes com a palavra inteira vêm antes, mesmo o mais longo, e só depois os que começam pelo termo
+        IndiceDeNomes.Resultado resultado = indiceDeNomes.buscar("jo", 0, 3);
+        Assertions.assertEquals(List.of(7000L, 7001L, 7002L), resultado.ids());
+        Assertions.assertTrue(resultado.total() >= 6007);
+        Assertions.assertEquals(List.of(10L, 12L, 14L), indiceDeNomes.buscar("jo", 1, 3).ids());
+
+        // o nome mais longo está no fim da lista de "lima", mas soma mais pontos que os curtos e precisa ser alcançado
+        Assertions.assertEquals(List.of(7001L, 7002L, 10L), indiceDeNomes.buscar("lima jo", 0, 3).ids());
+    }
+}
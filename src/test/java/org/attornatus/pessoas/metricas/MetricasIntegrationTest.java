@@ -0,0 +1,90 @@
+package org.attornatus.pessoas.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.exception.ServicoIndisponivelException;
+import org.attornatus.pessoas.service.PessoaService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricasIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PessoaService pessoaService;
+    @Autowired
+    private MetricasDeServicoAspect metricasDeServicoAspect;
+    @Autowired
+    private MeterRegistry registry;
+
+
+    @Test
+    @DisplayName("Quando a api é usada, o endpoint do prometheus deve expor tempos de endpoints, services, repositórios, pool, hibernate, admissão e cargas dos caches")
+    public void testeEndpointPrometheus() throws Exception {
+        PessoaDTO pessoa = pessoaService.criar(new PessoaDTO(null, "João", LocalDate.of(1990, 10, 5)));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa?page=0&size=5"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/endereco/" + pessoa.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/pessoa/-1"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        Assertions.assertThrows(EntityNotFoundException.class, () -> pessoaService.consultarPorId(-1L));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.allOf(
+                        Matchers.containsString("http_server_requests_seconds_bucket{"),
+                        Matchers.matchesRegex("(?s).*http_server_requests_seconds_count\\{[^}]*outcome=\"CLIENT_ERROR\"[^}]*status=\"404\".*"),
+                        Matchers.matchesRegex("(?s).*pessoas_servico_seconds_bucket\\{[^}]*metodo=\"consultarPorId\"[^}]*outcome=\"NOT_FOUND\".*"),
+                        Matchers.matchesRegex("(?s).*pessoas_servico_seconds_count\\{[^}]*metodo=\"criar\"[^}]*outcome=\"SUCCESS\".*"),
+                        Matchers.containsString("spring_data_repository_invocations_seconds_bucket{"),
+                        Matchers.containsString("hikaricp_connections_active{"),
+                        Matchers.containsString("hibernate_query_executions_total"),
+                        Matchers.containsString("hibernate_entities_inserts_total"),
+                        Matchers.containsString("hibernate_second_level_cache_requests_total{"),
+                        Matchers.containsString("pessoas_admissao_limite{tipo=\"leitura\",}"),
+                        Matchers.containsString("pessoas_admissao_recusadas_total{tipo=\"escrita\",}"),
+                        Matchers.containsString("pessoas_cache_cargas_total{cache=\"enderecos\",resultado=\"executada\",}"))));
+    }
+
+    @Test
+    @DisplayName("Quando o service recusa a chamada por indisponibilidade, o aspecto deve registrar o resultado UNAVAILABLE")
+    public void testeResultadoIndisponivel() {
+        // o service real só fica indisponível sob sobrecarga, então o aspecto é aplicado sobre um mock que recusa a criação
+        PessoaService indisponivel = Mockito.mock(PessoaService.class);
+        Mockito.when(indisponivel.criar(ArgumentMatchers.any()))
+                .thenThrow(new ServicoIndisponivelException("Servidor sobrecarregado", Duration.ofSeconds(1)));
+        AspectJProxyFactory fabrica = new AspectJProxyFactory(indisponivel);
+        fabrica.addAspect(metricasDeServicoAspect);
+        PessoaService medido = fabrica.getProxy();
+
+        Assertions.assertThrows(ServicoIndisponivelException.class,
+                () -> medido.criar(new PessoaDTO(null, "João", LocalDate.of(1990, 10, 5))));
+
+        Assertions.assertEquals(1, registry.get(MetricasDeServicoAspect.METRICA)
+                .tag("metodo", "criar")
+                .tag("outcome", "UNAVAILABLE")
+                .tag("exception", "ServicoIndisponivelException")
+                .timer().count());
+    }
+}
@@ -0,0 +1,113 @@
+package org.attornatus.pessoas.reativo;
+
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.IdEnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@SpringBootTest(classes = PessoasReativoApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(PessoasReativoApplication.PERFIL)
+public class ApiReativaIntegrationTest {
+    private PessoaDTO pessoa;
+    private List<EnderecoDTO> enderecos;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    public void setUp() {
+        this.pessoa = webTestClient.post().uri("/pessoa")
+                .bodyValue(new PessoaDTO(null, "João", LocalDate.of(1990, 10, 5)))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(PessoaDTO.class).returnResult().getResponseBody();
+
+        this.enderecos = Flux.range(0, 3).map(i -> webTestClient.post().uri("/endereco")
+                .bodyValue(new EnderecoDTO(null, "Rua " + i, "58.100-20" + i, i, "cidade " + i, null, pessoa.getId()))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(EnderecoDTO.class).returnResult().getResponseBody()).collectList().block();
+    }
+
+
+    @Test
+    @DisplayName("Quando cria e consulta uma pessoa, deve retornar os mesmos dados, o etag e 404 para ids inexistentes")
+    public void testeConsultarPorId() {
+        webTestClient.get().uri("/pessoa/{id}", pessoa.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody(PessoaDTO.class).isEqualTo(pessoa);
+
+        webTestClient.get().uri("/pessoa/{id}", -1)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message[0]").isEqualTo("Não existe nenhuma pessoa com o id -1");
+    }
+
+    @Test
+    @DisplayName("Quando lista as pessoas, deve retornar uma página em json ou transmitir todas em ndjson")
+    public void testeConsultarTodos() {
+        webTestClient.get().uri("/pessoa?page=0&size=1&sort=nome")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(1)
+                .jsonPath("$.size").isEqualTo(1);
+
+        Flux<PessoaDTO> transmitidas = webTestClient.get().uri("/pessoa")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(PessoaDTO.class).getResponseBody();
+
+        StepVerifier.create(transmitidas.filter(pessoa::equals))
+                .expectNext(pessoa)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Quando escolhe o endereço principal, deve marcar só ele e rejeitar endereços de outra pessoa")
+    public void testeEscolherEnderecoPrincipal() {
+        EnderecoDTO escolhido = enderecos.get(1);
+        webTestClient.put().uri("/endereco/{idPessoa}", pessoa.getId())
+                .bodyValue(new IdEnderecoDTO(escolhido.getId()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.principal").isEqualTo(true);
+
+        List<EnderecoDTO> response = webTestClient.get().uri("/endereco/{idPessoa}", pessoa.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(EnderecoDTO.class).returnResult().getResponseBody();
+        Assertions.assertEquals(enderecos.size(), response.size());
+        Assertions.assertEquals(List.of(false, true, false), response.stream().map(EnderecoDTO::getPrincipal).toList());
+
+        PessoaDTO outra = webTestClient.post().uri("/pessoa")
+                .bodyValue(new PessoaDTO(null, "Maria", LocalDate.of(1985, 3, 1)))
+                .exchange()
+                .expectBody(PessoaDTO.class).returnResult().getResponseBody();
+        webTestClient.put().uri("/endereco/{idPessoa}", outra.getId())
+                .bodyValue(new IdEnderecoDTO(escolhido.getId()))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/endereco/{idPessoa}", -1)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,111 @@
+package org.attornatus.pessoas.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PaginaPorCursorDTO;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.attornatus.pessoas.util.CursorDePaginacao;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+public class BuscaDeEnderecosServiceIntegrationTest {
+    // cada execução do setUp usa uma cidade e uma faixa de cep próprias, já que o banco é compartilhado entre os testes
+    private static final AtomicInteger EXECUCOES = new AtomicInteger(9000);
+
+    private String cidade;
+    private String prefixoDoCep;
+    private List<Endereco> enderecos;
+
+    @Autowired
+    private BuscaDeEnderecosService buscaDeEnderecosService;
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        int execucao = EXECUCOES.incrementAndGet();
+        this.cidade = "São João " + execucao;
+        this.prefixoDoCep = String.valueOf(execucao);
+
+        // cinco endereços na cidade, escrita de formas diferentes, com ceps em ordem inversa à de criação
+        Pessoa pessoa = pessoaRepository.save(new Pessoa(null, "João", LocalDate.of(1990, 10, 5)));
+        this.enderecos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String grafia = i % 2 == 0 ? cidade : cidade.toUpperCase().replace("Ã", "A");
+            String cep = prefixoDoCep.substring(0, 2) + "." + prefixoDoCep.substring(2) + "0-00" + (4 - i);
+            enderecos.add(enderecoRepository.save(new Endereco(null, "Rua " + i, cep, i, grafia, i == 3, pessoa)));
+        }
+    }
+
+
+    @Test
+    @DisplayName("Quando busca por cidade, deve ignorar acentos e maiúsculas e paginar pelo cursor até o fim")
+    public void testeBuscarPorCidade() throws IOException {
+        PaginaPorCursorDTO<EnderecoDTO> primeira = transmitir(buscaDeEnderecosService.consultarPorCidade("sao joao " + prefixoDoCep, false, null, 3));
+        PaginaPorCursorDTO<EnderecoDTO> segunda = transmitir(buscaDeEnderecosService.consultarPorCidade(cidade, false, primeira.getProximo(), 3));
+
+        Assertions.assertEquals(List.of(enderecos.get(0).getId(), enderecos.get(1).getId(), enderecos.get(2).getId()), ids(primeira));
+        Assertions.assertTrue(primeira.getTemProximo());
+        Assertions.assertEquals(List.of(enderecos.get(3).getId(), enderecos.get(4).getId()), ids(segunda));
+        Assertions.assertFalse(segunda.getTemProximo());
+        Assertions.assertNull(segunda.getProximo());
+    }
+
+    @Test
+    @DisplayName("Quando busca por prefixo de cep, deve retornar os endereços em ordem de cep e filtrar os principais se pedido")
+    public void testeBuscarPorCep() throws IOException {
+        PaginaPorCursorDTO<EnderecoDTO> primeira = transmitir(buscaDeEnderecosService.consultarPorCep(prefixoDoCep, null, null, false, null, 2));
+        PaginaPorCursorDTO<EnderecoDTO> segunda = transmitir(buscaDeEnderecosService.consultarPorCep(prefixoDoCep, null, null, false, primeira.getProximo(), 10));
+        PaginaPorCursorDTO<EnderecoDTO> principais = transmitir(buscaDeEnderecosService.consultarPorCep(prefixoDoCep, null, null, true, null, 10));
+
+        Assertions.assertEquals(List.of(enderecos.get(4).getId(), enderecos.get(3).getId()), ids(primeira));
+        Assertions.assertEquals(List.of(enderecos.get(2).getId(), enderecos.get(1).getId(), enderecos.get(0).getId()), ids(segunda));
+        Assertions.assertEquals(List.of(enderecos.get(3).getId()), ids(principais));
+    }
+
+    @Test
+    @DisplayName("Quando busca com parâmetros inválidos, deve lançar uma exceção antes de escrever a resposta")
+    public void testeBuscarComParametrosInvalidos() {
+        String cursorDeCidade = new CursorDePaginacao("cidade", Sort.Direction.ASC, 1L, null).codificar();
+
+        Assertions.assertThrows(BadRequestException.class, () -> buscaDeEnderecosService.consultarPorCidade(" - ", false, null, 10));
+        Assertions.assertThrows(BadRequestException.class, () -> buscaDeEnderecosService.consultarPorCep(null, null, null, false, null, 10));
+        Assertions.assertThrows(BadRequestException.class, () -> buscaDeEnderecosService.consultarPorCep(null, "59000-000", "58000-000", false, null, 10));
+        Assertions.assertThrows(BadRequestException.class, () -> buscaDeEnderecosService.consultarPorCep("123456789", null, null, false, null, 10));
+        Assertions.assertThrows(BadRequestException.class, () -> buscaDeEnderecosService.consultarPorCep("58", null, null, false, cursorDeCidade, 10));
+    }
+
+
+    private PaginaPorCursorDTO<EnderecoDTO> transmitir(BuscaDeEnderecosService.Consulta consulta) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        buscaDeEnderecosService.transmitir(consulta, saida);
+        return objectMapper.readValue(saida.toByteArray(), new TypeReference<>() {
+        });
+    }
+
+    private List<Long> ids(PaginaPorCursorDTO<EnderecoDTO> pagina) {
+        return pagina.getConteudo().stream().map(EnderecoDTO::getId).toList();
+    }
+}
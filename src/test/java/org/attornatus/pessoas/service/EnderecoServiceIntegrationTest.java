@@ -0,0 +1,93 @@
+package org.attornatus.pessoas.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+public class EnderecoServiceIntegrationTest {
+    private Pessoa pessoa;
+    private List<Endereco> enderecos;
+
+    @Autowired
+    private EnderecoService enderecoService;
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+
+    @BeforeEach
+    public void setUp() {
+        this.pessoa = pessoaRepository.save(new Pessoa(null, "João", LocalDate.of(1990, 10, 5)));
+        this.enderecos = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            enderecos.add(enderecoRepository.save(new Endereco(null, "Rua " + i, "58.100-20" + i, i, "cidade " + i, false, pessoa)));
+        }
+    }
+
+
+    @Test
+    @DisplayName("Quando chama o método buscarEnderecosDaPessoa, deve retornar os endereços da pessoa em ordem de criação")
+    public void testeBuscarEnderecosDaPessoa() {
+        List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(pessoa.getId());
+
+        Assertions.assertEquals(enderecos.size(), response.size());
+        Assertions.assertEquals(enderecos.get(0).getId(), response.get(0).getId());
+        Assertions.assertEquals(pessoa.getId(), response.get(0).getIdPessoa());
+        Assertions.assertThrows(EntityNotFoundException.class, () -> enderecoService.buscarEnderecosDaPessoa(-1L));
+    }
+
+    @Test
+    @DisplayName("Quando várias requisições escolhem o endereço principal em paralelo, a pessoa deve terminar com apenas um")
+    public void testeEscolherEnderecoPrincipalEmParalelo() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sucessos = new AtomicInteger();
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (int i = 0; i < 400; i++) {
+            Long idEndereco = enderecos.get(i % enderecos.size()).getId();
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                enderecoService.escolherEnderecoPrincipal(pessoa.getId(), idEndereco);
+                sucessos.incrementAndGet();
+                return null;
+            }));
+        }
+
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) tarefa.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        long principais = enderecoRepository.findEnderecosByPessoa(pessoa).stream().filter(Endereco::getPrincipal).count();
+        Assertions.assertEquals(400, sucessos.get());
+        Assertions.assertEquals(1, principais);
+    }
+
+    @Test
+    @DisplayName("Quando se tenta gravar um segundo endereço principal para a mesma pessoa, o banco deve recusar")
+    public void testeBancoRecusaDoisEnderecosPrincipais() {
+        enderecoService.escolherEnderecoPrincipal(pessoa.getId(), enderecos.get(0).getId());
+
+        Endereco outro = enderecos.get(1);
+        outro.setPrincipal(true);
+
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> enderecoRepository.save(outro));
+    }
+}
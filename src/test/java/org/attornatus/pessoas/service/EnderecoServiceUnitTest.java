@@ -1,8 +1,12 @@
 package org.attornatus.pessoas.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.cache.EnderecoCache;
+import org.attornatus.pessoas.cache.PessoaCache;
 import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.escrita.GravadorEmGrupo;
 import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
 import org.attornatus.pessoas.model.Endereco;
 import org.attornatus.pessoas.model.Pessoa;
 import org.attornatus.pessoas.repository.EnderecoRepository;
@@ -15,8 +19,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -34,6 +40,15 @@ public class EnderecoServiceUnitTest {
     private EnderecoRepository enderecoRepository;
     @Mock
     private PessoaRepository pessoaRepository;
+    @Spy
+    private PessoaCache pessoaCache = new PessoaCache(100, Duration.ofMinutes(10), Duration.ofMinutes(10), Duration.ofSeconds(30));
+    @Spy
+    private EnderecoCache enderecoCache = new EnderecoCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+    @Spy
+    private AgregadosDemograficos agregadosDemograficos = new AgregadosDemograficos();
+
+    @Mock
+    private GravadorEmGrupo gravadorEmGrupo;
 
     @InjectMocks
     private EnderecoService enderecoService;
@@ -47,6 +62,7 @@ public class EnderecoServiceUnitTest {
            return endereco;
         });
         Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
+        Mockito.when(pessoaRepository.getReferenceById(1L)).thenReturn(pessoa1);
 
         enderecoDTO1.setId(null);
 
@@ -86,8 +102,7 @@ public class EnderecoServiceUnitTest {
     @Test
     @DisplayName("Quando chama o método buscarEnderecosDaPessoa, deve retornar todos os endereços buscados")
     public void testeMetodoBuscarEnderecosDaPessoa() {
-        Mockito.when(enderecoRepository.findEnderecosByPessoa(pessoa1)).thenReturn(List.of(endereco1, endereco2));
-        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
+        Mockito.when(enderecoRepository.buscarDTOsPorIdPessoa(1L)).thenReturn(List.of(enderecoDTO1, enderecoDTO2));
 
         List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(1L);
 
@@ -96,82 +111,139 @@ public class EnderecoServiceUnitTest {
         Assertions.assertEquals(enderecoDTO1, response.get(0));
         Assertions.assertEquals(enderecoDTO2, response.get(1));
 
-        Mockito.verify(enderecoRepository, Mockito.times(1)).findEnderecosByPessoa(Mockito.any(Pessoa.class));
-        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(Mockito.anyLong());
+        // com endereços encontrados, não é preciso carregar nem verificar a pessoa
+        Mockito.verify(enderecoRepository, Mockito.times(1)).buscarDTOsPorIdPessoa(1L);
+        Mockito.verify(pessoaRepository, Mockito.times(0)).findById(Mockito.anyLong());
+        Mockito.verify(pessoaRepository, Mockito.times(0)).existsById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método buscarEnderecosDaPessoa para uma pessoa sem endereços, deve retornar uma lista vazia")
+    public void testeMetodoBuscarEnderecosDaPessoaSemEnderecos() {
+        Mockito.when(enderecoRepository.buscarDTOsPorIdPessoa(1L)).thenReturn(List.of());
+        Mockito.when(pessoaRepository.existsById(1L)).thenReturn(true);
+
+        List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(1L);
+
+        Assertions.assertTrue(response.isEmpty());
+        Mockito.verify(pessoaRepository, Mockito.times(1)).existsById(1L);
     }
 
     @Test
     @DisplayName("Quando chama o método buscarEnderecosDaPessoa com um idPessoa inválido, deve lançar uma exceção")
     public void testeMetodoBuscarEnderecosDaPessoaComIdPessoaInvalido() {
-        Mockito.when(enderecoRepository.findEnderecosByPessoa(Mockito.any())).thenReturn(List.of());
-        Mockito.when(pessoaRepository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
+        Mockito.when(enderecoRepository.buscarDTOsPorIdPessoa(Mockito.anyLong())).thenReturn(List.of());
+        Mockito.when(pessoaRepository.existsById(Mockito.anyLong())).thenReturn(false);
 
         Assertions.assertThrows(EntityNotFoundException.class, () -> enderecoService.buscarEnderecosDaPessoa(10L));
 
-        Mockito.verify(enderecoRepository, Mockito.times(0)).findEnderecosByPessoa(Mockito.any());
-        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(Mockito.anyLong());
+        Mockito.verify(enderecoRepository, Mockito.times(1)).buscarDTOsPorIdPessoa(10L);
+        Mockito.verify(pessoaRepository, Mockito.times(1)).existsById(10L);
+    }
+
+    @Test
+    @DisplayName("Quando chama o método buscarEnderecosDaPessoa mais de uma vez, deve consultar o banco de dados só na primeira")
+    public void testeMetodoBuscarEnderecosDaPessoaComCache() {
+        Mockito.when(enderecoRepository.buscarDTOsPorIdPessoa(1L)).thenReturn(List.of(enderecoDTO1, enderecoDTO2));
+
+        enderecoService.buscarEnderecosDaPessoa(1L);
+        List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(1L);
+
+        Assertions.assertEquals(List.of(enderecoDTO1, enderecoDTO2), response);
+        Mockito.verify(enderecoRepository, Mockito.times(1)).buscarDTOsPorIdPessoa(1L);
+    }
+
+    @Test
+    @DisplayName("Quando um endereço é criado, a próxima busca dos endereços da pessoa deve consultar o banco de dados novamente")
+    public void testeMetodoCriarInvalidaCacheDeEnderecos() {
+        Mockito.when(enderecoRepository.buscarDTOsPorIdPessoa(1L)).thenReturn(List.of(enderecoDTO1)).thenReturn(List.of(enderecoDTO1, enderecoDTO2));
+        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
+        Mockito.when(pessoaRepository.getReferenceById(1L)).thenReturn(pessoa1);
+        Mockito.when(enderecoRepository.save(Mockito.any(Endereco.class))).thenReturn(endereco2);
+
+        enderecoService.buscarEnderecosDaPessoa(1L);
+        enderecoService.criar(enderecoDTO2);
+        List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(1L);
+
+        Assertions.assertEquals(2, response.size());
+        Mockito.verify(enderecoRepository, Mockito.times(2)).buscarDTOsPorIdPessoa(1L);
+    }
+
+    @Test
+    @DisplayName("Quando uma escrita acontece durante a carga dos endereços, a lista carregada não deve ser servida depois")
+    public void testeMetodoBuscarEnderecosDaPessoaComEscritaConcorrente() {
+        // simula uma escolha de endereço principal confirmada enquanto a lista antiga ainda estava sendo carregada
+        Mockito.when(enderecoRepository.buscarDTOsPorIdPessoa(1L)).thenAnswer(invocationOnMock -> {
+            enderecoCache.invalidar(1L);
+            return List.of(enderecoDTO1);
+        }).thenReturn(List.of(enderecoDTO1, enderecoDTO2));
+
+        enderecoService.buscarEnderecosDaPessoa(1L);
+        List<EnderecoDTO> response = enderecoService.buscarEnderecosDaPessoa(1L);
+
+        Assertions.assertEquals(2, response.size());
+        Mockito.verify(enderecoRepository, Mockito.times(2)).buscarDTOsPorIdPessoa(1L);
     }
 
     @Test
     @DisplayName("Quando chama o método escolherEnderecoPrincipal, deve salvar e retornar o novo endereco principal")
     public void testeMetodoEscolherEnderecoPrincipal() {
-        endereco2.setPrincipal(true);
         enderecoDTO1.setPrincipal(true);
 
-        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
-        Mockito.when(enderecoRepository.findById(1L)).thenReturn(Optional.of(endereco1));
-        Mockito.when(enderecoRepository.findEnderecosByPessoa(Mockito.any(Pessoa.class))).thenReturn(List.of(endereco2));
-        Mockito.when(enderecoRepository.saveAll(Mockito.any())).thenReturn(null);
-        Mockito.when(enderecoRepository.save(Mockito.any(Endereco.class))).thenAnswer(invocationOnMock -> invocationOnMock.getArguments()[0]);
+        Mockito.when(enderecoRepository.desmarcarTodos(1L)).thenReturn(2);
+        Mockito.when(enderecoRepository.marcarPrincipal(1L, 1L)).thenReturn(1);
+        Mockito.when(enderecoRepository.buscarDTOPorId(1L)).thenReturn(Optional.of(enderecoDTO1));
 
         EnderecoDTO response = enderecoService.escolherEnderecoPrincipal(1L, 1L);
 
         Assertions.assertNotNull(response);
         Assertions.assertEquals(enderecoDTO1, response);
 
-        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(Mockito.anyLong());
-        Mockito.verify(enderecoRepository, Mockito.times(1)).findById(Mockito.anyLong());
-        Mockito.verify(enderecoRepository, Mockito.times(1)).findEnderecosByPessoa(Mockito.any());
-        Mockito.verify(enderecoRepository, Mockito.times(1)).saveAll(Mockito.any());
-        Mockito.verify(enderecoRepository, Mockito.times(1)).save(Mockito.any());
+        // a troca deve ser feita apenas com updates, sem carregar a pessoa nem os endereços
+        Mockito.verify(enderecoRepository, Mockito.times(1)).desmarcarTodos(1L);
+        Mockito.verify(enderecoRepository, Mockito.times(1)).marcarPrincipal(1L, 1L);
+        Mockito.verify(pessoaRepository, Mockito.times(0)).findById(Mockito.anyLong());
+        Mockito.verify(enderecoRepository, Mockito.times(0)).findById(Mockito.anyLong());
+        Mockito.verify(enderecoRepository, Mockito.times(0)).findEnderecosByPessoa(Mockito.any());
+        Mockito.verify(enderecoRepository, Mockito.times(0)).saveAll(Mockito.any());
+        Mockito.verify(enderecoRepository, Mockito.times(0)).save(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método escolherEnderecoPrincipal com um idPessoa inválido, deve lançar uma exceção")
+    public void testeMetodoEscolherEnderecoPrincipalComIdPessoaInvalido() {
+        Mockito.when(enderecoRepository.marcarPrincipal(Mockito.anyLong(), Mockito.anyLong())).thenReturn(0);
+        Mockito.when(pessoaRepository.existsById(10L)).thenReturn(false);
+
+        Assertions.assertThrows(EntityNotFoundException.class, () -> enderecoService.escolherEnderecoPrincipal(10L, 1L));
+
+        Mockito.verify(enderecoRepository, Mockito.times(0)).buscarDTOPorId(Mockito.anyLong());
     }
 
     @Test
     @DisplayName("Quando chama o método escolherEnderecoPrincipal com um idEndereco inválido, deve lançar uma exceção")
     public void testeMetodoEscolherEnderecoPrincipalComIdEnderecoInvalido() {
-        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
-        Mockito.when(enderecoRepository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
-        Mockito.when(enderecoRepository.findEnderecosByPessoa(Mockito.any())).thenReturn(List.of());
-        Mockito.when(enderecoRepository.saveAll(Mockito.any())).thenReturn(null);
-        Mockito.when(enderecoRepository.save(Mockito.any(Endereco.class))).thenAnswer(invocationOnMock -> invocationOnMock.getArguments()[0]);
+        Mockito.when(enderecoRepository.marcarPrincipal(Mockito.anyLong(), Mockito.anyLong())).thenReturn(0);
+        Mockito.when(pessoaRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(enderecoRepository.existsById(10L)).thenReturn(false);
 
         Assertions.assertThrows(EntityNotFoundException.class, () -> enderecoService.escolherEnderecoPrincipal(1L, 10L));
 
-        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(Mockito.anyLong());
-        Mockito.verify(enderecoRepository, Mockito.times(1)).findById(Mockito.anyLong());
-        Mockito.verify(enderecoRepository, Mockito.times(0)).findEnderecosByPessoa(Mockito.any());
-        Mockito.verify(enderecoRepository, Mockito.times(0)).saveAll(Mockito.any());
-        Mockito.verify(enderecoRepository, Mockito.times(0)).save(Mockito.any());
+        Mockito.verify(enderecoRepository, Mockito.times(1)).marcarPrincipal(1L, 10L);
+        Mockito.verify(enderecoRepository, Mockito.times(0)).buscarDTOPorId(Mockito.anyLong());
     }
 
     @Test
     @DisplayName("Quando chama o método escolherEnderecoPrincipal com um idEndereco incompatível com idPessoa, lança uma exceção")
     public void testeMetodoEscolherEnderecoPrincipalComEnderecoEPessoaIncompativeis() {
-        endereco1.setPessoa(pessoa2);
-
-        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
-        Mockito.when(enderecoRepository.findById(1L)).thenReturn(Optional.of(endereco1));
-        Mockito.when(enderecoRepository.findEnderecosByPessoa(Mockito.any(Pessoa.class))).thenReturn(List.of(endereco2));
-        Mockito.when(enderecoRepository.saveAll(Mockito.any())).thenReturn(null);
-        Mockito.when(enderecoRepository.save(Mockito.any(Endereco.class))).thenAnswer(invocationOnMock -> invocationOnMock.getArguments()[0]);
+        Mockito.when(enderecoRepository.marcarPrincipal(Mockito.anyLong(), Mockito.anyLong())).thenReturn(0);
+        Mockito.when(pessoaRepository.existsById(1L)).thenReturn(true);
+        Mockito.when(enderecoRepository.existsById(1L)).thenReturn(true);
 
         Assertions.assertThrows(BadRequestException.class, () -> enderecoService.escolherEnderecoPrincipal(1L, 1L));
 
-        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(Mockito.anyLong());
-        Mockito.verify(enderecoRepository, Mockito.times(1)).findById(Mockito.anyLong());
-        Mockito.verify(enderecoRepository, Mockito.times(0)).findEnderecosByPessoa(Mockito.any());
-        Mockito.verify(enderecoRepository, Mockito.times(0)).saveAll(Mockito.any());
-        Mockito.verify(enderecoRepository, Mockito.times(0)).save(Mockito.any());
+        Mockito.verify(enderecoRepository, Mockito.times(1)).marcarPrincipal(1L, 1L);
+        Mockito.verify(enderecoRepository, Mockito.times(0)).buscarDTOPorId(Mockito.anyLong());
     }
 
     @BeforeEach
@@ -0,0 +1,47 @@
+package org.attornatus.pessoas.service;
+
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.EstatisticasDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+@SpringBootTest
+public class EstatisticasServiceIntegrationTest {
+
+    @Autowired
+    private EstatisticasService estatisticasService;
+    @Autowired
+    private PessoaService pessoaService;
+    @Autowired
+    private EnderecoService enderecoService;
+
+
+    @Test
+    @DisplayName("Quando as escritas passam pelos services, os agregados devem coincidir com os reconstruídos a partir do banco")
+    public void testeAgregadosIncrementais() {
+        // outros testes gravam diretamente pelos repositórios, então os agregados partem de uma reconstrução
+        EstatisticasDTO antes = estatisticasService.reconstruir();
+
+        PessoaDTO pessoa = pessoaService.criar(new PessoaDTO(null, "Ana", LocalDate.of(1899, 3, 10)));
+        pessoaService.editar(pessoa.getId(), new PessoaDTO(null, null, LocalDate.of(1898, 3, 10)));
+        EnderecoDTO primeiro = enderecoService.criar(new EnderecoDTO(null, "Rua A", "58.000-000", 1, "Cidade Estatística", null, pessoa.getId()));
+        EnderecoDTO segundo = enderecoService.criar(new EnderecoDTO(null, "Rua B", "58.000-001", 2, "Outra Estatística", null, pessoa.getId()));
+        enderecoService.escolherEnderecoPrincipal(pessoa.getId(), primeiro.getId());
+        enderecoService.escolherEnderecoPrincipal(pessoa.getId(), segundo.getId());
+
+        EstatisticasDTO incremental = estatisticasService.consultar();
+
+        Assertions.assertEquals(antes.getTotalDePessoas() + 1, incremental.getTotalDePessoas());
+        Assertions.assertEquals(1, incremental.getPorAnoDeNascimento().get(1898));
+        Assertions.assertNull(incremental.getPorAnoDeNascimento().get(1899));
+        Assertions.assertEquals(1, incremental.getPorCidadePrincipal().get("outra estatistica"));
+        Assertions.assertNull(incremental.getPorCidadePrincipal().get("cidade estatistica"));
+        Assertions.assertEquals(estatisticasService.reconstruir(), incremental);
+    }
+}
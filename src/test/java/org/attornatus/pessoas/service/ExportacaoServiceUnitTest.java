@@ -0,0 +1,78 @@
+package org.attornatus.pessoas.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.attornatus.pessoas.dto.LinhaDeExportacaoDTO;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+@SpringBootTest
+public class ExportacaoServiceUnitTest {
+    private LinhaDeExportacaoDTO linha1;
+    private LinhaDeExportacaoDTO linha2;
+    private LinhaDeExportacaoDTO linha3;
+
+    @Mock
+    private PessoaRepository pessoaRepository;
+
+    @InjectMocks
+    private ExportacaoService exportacaoService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(exportacaoService, "objectMapper", new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+        this.linha1 = new LinhaDeExportacaoDTO(1L, "João", LocalDate.of(1990, 10, 5), 1L, "Rua 1", "58.100-200", 10, "cidade 1", true);
+        this.linha2 = new LinhaDeExportacaoDTO(1L, "João", LocalDate.of(1990, 10, 5), 2L, "Rua 2, fundos", "55.432-234", 20, "cidade 2", false);
+        this.linha3 = new LinhaDeExportacaoDTO(2L, "Maria", LocalDate.of(2000, 1, 25), null, null, null, null, null, null);
+    }
+
+
+    @Test
+    @DisplayName("Quando chama o método exportarNdjson, deve escrever uma linha por pessoa com seus endereços")
+    public void testeMetodoExportarNdjson() throws Exception {
+        Mockito.when(pessoaRepository.exportarComEnderecos()).thenReturn(Stream.of(linha1, linha2, linha3));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        exportacaoService.exportarNdjson(saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(2, linhas.length);
+        Assertions.assertTrue(linhas[0].startsWith("{\"id\":1,\"nome\":\"João\",\"dataDeNascimento\":\"1990-10-05\""));
+        Assertions.assertTrue(linhas[0].contains("\"enderecos\":[{\"id\":1,"));
+        Assertions.assertTrue(linhas[0].contains("{\"id\":2,"));
+        Assertions.assertTrue(linhas[1].contains("\"enderecos\":[]"));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método exportarCsv, deve escrever uma linha por endereço com os dados da pessoa")
+    public void testeMetodoExportarCsv() throws Exception {
+        Mockito.when(pessoaRepository.exportarComEnderecos()).thenReturn(Stream.of(linha1, linha2, linha3));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        exportacaoService.exportarCsv(saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(4, linhas.length);
+        Assertions.assertEquals("idPessoa,nome,dataDeNascimento,idEndereco,logradouro,cep,numero,cidade,principal", linhas[0]);
+        Assertions.assertEquals("1,João,1990-10-05,1,Rua 1,58.100-200,10,cidade 1,true", linhas[1]);
+        Assertions.assertEquals("1,João,1990-10-05,2,\"Rua 2, fundos\",55.432-234,20,cidade 2,false", linhas[2]);
+        Assertions.assertEquals("2,Maria,2000-01-25,,,,,,", linhas[3]);
+    }
+}
@@ -0,0 +1,199 @@
+package org.attornatus.pessoas.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.attornatus.pessoas.cache.EnderecoCache;
+import org.attornatus.pessoas.cache.PessoaCache;
+import org.attornatus.pessoas.dto.RelatorioImportacaoDTO;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
+import org.attornatus.pessoas.indice.IndiceDeNomes;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest
+public class ImportacaoServiceUnitTest {
+
+    @Mock
+    private PessoaRepository pessoaRepository;
+    @Mock
+    private EnderecoRepository enderecoRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private PessoaCache pessoaCache;
+    @Mock
+    private EnderecoCache enderecoCache;
+    @Mock
+    private IndiceDeNomes indiceDeNomes;
+    @Mock
+    private AgregadosDemograficos agregadosDemograficos;
+
+    @InjectMocks
+    private ImportacaoService importacaoService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(importacaoService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(importacaoService, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(importacaoService, "tamanhoDoLote", 2);
+
+        Mockito.when(transactionTemplate.execute(Mockito.any())).thenAnswer(invocationOnMock -> {
+            TransactionCallback<?> callback = (TransactionCallback<?>) invocationOnMock.getArguments()[0];
+            return callback.doInTransaction(null);
+        });
+    }
+
+
+    @Test
+    @DisplayName("Quando chama o método importarPessoas com ndjson, deve salvar as linhas válidas em lotes")
+    public void testeMetodoImportarPessoasNdjson() throws Exception {
+        String ndjson = """
+                {"nome": "João", "dataDeNascimento": "1990-10-05"}
+                {"nome": "Maria", "dataDeNascimento": "2000-01-25"}
+
+                {"nome": "Pedro", "dataDeNascimento": "2001-12-20"}
+                """;
+
+        RelatorioImportacaoDTO response = importacaoService.importarPessoas(corpo(ndjson), false);
+
+        Assertions.assertEquals(4L, response.getLinhasProcessadas());
+        Assertions.assertEquals(3L, response.getImportados());
+        Assertions.assertTrue(response.getErros().isEmpty());
+
+        // com lotes de tamanho 2, três pessoas devem ser gravadas em duas chamadas
+        Mockito.verify(pessoaRepository, Mockito.times(2)).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método importarPessoas com linhas inválidas, deve reportá-las sem interromper a importação")
+    public void testeMetodoImportarPessoasComLinhasInvalidas() throws Exception {
+        String csv = """
+                nome,dataDeNascimento
+                João,1990-10-05
+                ,2000-01-25
+                Maria,25/01/2000
+                Pedro
+                "Silva, Ana",2001-12-20
+                """;
+
+        RelatorioImportacaoDTO response = importacaoService.importarPessoas(corpo(csv), true);
+
+        Assertions.assertEquals(6L, response.getLinhasProcessadas());
+        Assertions.assertEquals(2L, response.getImportados());
+        Assertions.assertEquals(3, response.getErros().size());
+        Assertions.assertEquals(3L, response.getErros().get(0).getLinha());
+        Assertions.assertEquals(4L, response.getErros().get(1).getLinha());
+        Assertions.assertEquals(5L, response.getErros().get(2).getLinha());
+
+        Mockito.verify(pessoaRepository, Mockito.times(1)).saveAll(Mockito.argThat(pessoas -> {
+            List<String> nomes = ((List<Pessoa>) pessoas).stream().map(Pessoa::getNome).toList();
+            return nomes.equals(List.of("João", "Silva, Ana"));
+        }));
+    }
+
+    @Test
+    @DisplayName("Quando o banco recusa um lote, deve reportar todas as suas linhas e seguir com os próximos lotes")
+    public void testeMetodoImportarPessoasComFalhaNoLote() throws Exception {
+        Mockito.when(pessoaRepository.saveAll(Mockito.anyList()))
+                .thenThrow(new DataIntegrityViolationException("falha"))
+                .thenReturn(List.of());
+
+        String csv = """
+                João,1990-10-05
+                Maria,2000-01-25
+                Pedro,2001-12-20
+                """;
+
+        RelatorioImportacaoDTO response = importacaoService.importarPessoas(corpo(csv), true);
+
+        Assertions.assertEquals(1L, response.getImportados());
+        Assertions.assertEquals(2, response.getErros().size());
+        Assertions.assertEquals(1L, response.getErros().get(0).getLinha());
+        Assertions.assertEquals(2L, response.getErros().get(1).getLinha());
+    }
+
+
+    @Test
+    @DisplayName("Quando chama o método importarEnderecos, deve rejeitar endereços de pessoas inexistentes e marcar o principal")
+    public void testeMetodoImportarEnderecos() throws Exception {
+        ReflectionTestUtils.setField(importacaoService, "tamanhoDoLote", 10);
+        Mockito.when(pessoaRepository.buscarIdsExistentes(Mockito.anyCollection())).thenReturn(List.of(1L));
+        Mockito.when(pessoaRepository.getReferenceById(1L)).thenReturn(new Pessoa(1L, "João", LocalDate.of(1990, 10, 5)));
+
+        String ndjson = """
+                {"logradouro": "Rua 1", "cep": "58.100-200", "numero": 10, "cidade": "cidade 1", "principal": true, "idPessoa": 1}
+                {"logradouro": "Rua 2", "cep": "55.432-234", "numero": 20, "cidade": "cidade 2", "idPessoa": 2}
+                {"logradouro": "Rua 3", "cep": "55.432-235", "numero": 30, "cidade": "cidade 3", "idPessoa": 1}
+                {"logradouro": "", "cep": "55.432-235", "numero": 30, "cidade": "cidade 3", "idPessoa": 1}
+                """;
+
+        RelatorioImportacaoDTO response = importacaoService.importarEnderecos(corpo(ndjson), false);
+
+        Assertions.assertEquals(2L, response.getImportados());
+        Assertions.assertEquals(2, response.getErros().size());
+        Assertions.assertEquals(2L, response.getErros().get(0).getLinha());
+        Assertions.assertEquals(List.of("Não existe nenhuma pessoa com o id 2"), response.getErros().get(0).getMensagens());
+        Assertions.assertEquals(4L, response.getErros().get(1).getLinha());
+
+        // a existência das pessoas é verificada uma única vez para o lote inteiro
+        Mockito.verify(pessoaRepository, Mockito.times(1)).buscarIdsExistentes(Set.of(1L, 2L));
+        Mockito.verify(pessoaRepository, Mockito.times(0)).findById(Mockito.anyLong());
+        Mockito.verify(enderecoRepository, Mockito.times(1)).desmarcarPrincipais(Set.of(1L));
+        Mockito.verify(enderecoRepository, Mockito.times(1)).saveAll(Mockito.argThat(enderecos -> {
+            List<Boolean> principais = ((List<Endereco>) enderecos).stream().map(Endereco::getPrincipal).toList();
+            return principais.equals(List.of(true, false));
+        }));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método importarEnderecos sem nenhum principal, não deve alterar os endereços existentes")
+    public void testeMetodoImportarEnderecosSemPrincipal() throws Exception {
+        Mockito.when(pessoaRepository.buscarIdsExistentes(Mockito.anyCollection())).thenReturn(List.of(1L));
+
+        String csv = """
+                logradouro,cep,numero,cidade,principal,idPessoa
+                Rua 1,58.100-200,10,cidade 1,false,1
+                Rua 2,58.100-200,dez,cidade 1,false,1
+                Rua 3,58.100-200,4294967306,cidade 1,false,1
+                """;
+
+        RelatorioImportacaoDTO response = importacaoService.importarEnderecos(corpo(csv), true);
+
+        Assertions.assertEquals(1L, response.getImportados());
+        Assertions.assertEquals(2, response.getErros().size());
+        Assertions.assertEquals(3L, response.getErros().get(0).getLinha());
+        // um número fora do intervalo de um int é reportado em vez de truncado
+        Assertions.assertEquals(4L, response.getErros().get(1).getLinha());
+        Assertions.assertEquals(List.of("Campo numero deve ser um inteiro entre -2147483648 e 2147483647: 4294967306"), response.getErros().get(1).getMensagens());
+
+        Mockito.verify(enderecoRepository, Mockito.times(0)).desmarcarPrincipais(Mockito.any());
+        Mockito.verify(enderecoRepository, Mockito.times(1)).saveAll(Mockito.anyList());
+    }
+
+
+    private InputStream corpo(String conteudo) {
+        return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,59 @@
+package org.attornatus.pessoas.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// verifica orçamentos de desempenho das operações dos services em testes de integração: quantos statements sql cada
+// uma pode executar, contados pelas estatísticas do hibernate, e quanto tempo pode levar. Os orçamentos de tempo podem
+// ser multiplicados por -Dorcamento.tempo.fator em máquinas mais lentas
+public class OrcamentoDeDesempenho {
+    private static final double FATOR_DE_TEMPO = Double.parseDouble(System.getProperty("orcamento.tempo.fator", "1"));
+    private static final int AQUECIMENTO = 5;
+    private static final int MEDICOES = 15;
+
+    private final Statistics estatisticas;
+
+    public OrcamentoDeDesempenho(EntityManagerFactory entityManagerFactory) {
+        this.estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public <T> T statements(String operacao, long maximo, Supplier<T> acao) {
+        // as estatísticas são globais, então os testes que as usam não podem rodar em paralelo entre si
+        estatisticas.clear();
+        T resultado = acao.get();
+        long executados = estatisticas.getPrepareStatementCount();
+        Assertions.assertTrue(executados <= maximo, () -> String.format(
+                "%s executou %d statements, acima do orçamento de %d", operacao, executados, maximo));
+        return resultado;
+    }
+
+    public void statements(String operacao, long maximo, Runnable acao) {
+        statements(operacao, maximo, () -> {
+            acao.run();
+            return null;
+        });
+    }
+
+    public void tempo(String operacao, Duration maximo, Runnable acao) {
+        // descarta as primeiras execuções, enquanto o jit e os caches aquecem, e compara a mediana das seguintes, que
+        // é pouco sensível a pausas isoladas do gc
+        for (int i = 0; i < AQUECIMENTO; i++) acao.run();
+        long[] tempos = new long[MEDICOES];
+        for (int i = 0; i < MEDICOES; i++) {
+            long inicio = System.nanoTime();
+            acao.run();
+            tempos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tempos);
+        Duration mediana = Duration.ofNanos(tempos[MEDICOES / 2]);
+        Duration orcamento = Duration.ofNanos((long) (maximo.toNanos() * FATOR_DE_TEMPO));
+        Assertions.assertTrue(mediana.compareTo(orcamento) <= 0, () -> String.format(
+                "%s levou %d ms na mediana, acima do orçamento de %d ms", operacao, mediana.toMillis(), orcamento.toMillis()));
+    }
+}
@@ -0,0 +1,192 @@
+package org.attornatus.pessoas.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.attornatus.pessoas.cache.EnderecoCache;
+import org.attornatus.pessoas.cache.PessoaCache;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.model.Endereco;
+import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
+import org.attornatus.pessoas.repository.PessoaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+// orçamentos de statements e de tempo das operações dos services, contra o banco de verdade. Ao contrário dos testes
+// unitários, em que os repositórios são mocks, estes falham quando uma alteração introduz consultas n+1. Os caches são
+// invalidados antes de cada operação medida, para que ela sempre chegue ao banco
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OrcamentoDeDesempenhoIntegrationTest {
+    private static final int PESSOAS_NA_MASSA = 10000;
+
+    private OrcamentoDeDesempenho orcamento;
+    private List<Long> idsDaMassa;
+
+    @Autowired
+    private PessoaService pessoaService;
+    @Autowired
+    private EnderecoService enderecoService;
+    @Autowired
+    private ImportacaoService importacaoService;
+    @Autowired
+    private ExportacaoService exportacaoService;
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private EnderecoRepository enderecoRepository;
+    @Autowired
+    private PessoaCache pessoaCache;
+    @Autowired
+    private EnderecoCache enderecoCache;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    public void popularMassa() throws Exception {
+        // massa com milhares de pessoas e três endereços cada, importada em lotes
+        long antes = pessoaRepository.count();
+        StringBuilder pessoas = new StringBuilder();
+        for (int i = 0; i < PESSOAS_NA_MASSA; i++) {
+            pessoas.append("{\"nome\":\"Massa ").append(i).append("\",\"dataDeNascimento\":\"")
+                    .append(LocalDate.of(1950, 1, 1).plusDays(i % 20000)).append("\"}\n");
+        }
+        importacaoService.importarPessoas(new ByteArrayInputStream(pessoas.toString().getBytes(StandardCharsets.UTF_8)), false);
+
+        this.idsDaMassa = pessoaRepository.findAll(PageRequest.of(0, PESSOAS_NA_MASSA, Sort.by(Sort.Direction.DESC, "id")))
+                .map(Pessoa::getId).getContent();
+        Assertions.assertEquals(antes + PESSOAS_NA_MASSA, pessoaRepository.count());
+
+        StringBuilder enderecos = new StringBuilder();
+        for (Long idPessoa : idsDaMassa) {
+            for (int j = 0; j < 3; j++) {
+                enderecos.append("{\"logradouro\":\"Rua ").append(j).append("\",\"cep\":\"01000-00").append(j)
+                        .append("\",\"numero\":").append(j).append(",\"cidade\":\"Cidade\",\"idPessoa\":")
+                        .append(idPessoa).append("}\n");
+            }
+        }
+        importacaoService.importarEnderecos(new ByteArrayInputStream(enderecos.toString().getBytes(StandardCharsets.UTF_8)), false);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        this.orcamento = new OrcamentoDeDesempenho(entityManagerFactory);
+    }
+
+
+    @Test
+    @DisplayName("As operações de pessoa devem respeitar seus orçamentos de statements")
+    public void testeStatementsDePessoa() {
+        PessoaDTO criada = orcamento.statements("criar", 2, () ->
+                pessoaService.criar(new PessoaDTO(null, "João", LocalDate.of(1990, 10, 5))));
+
+        pessoaCache.invalidar(List.of(criada.getId()));
+        orcamento.statements("consultarPorId", 1, () -> pessoaService.consultarPorId(criada.getId()));
+        orcamento.statements("editar", 2, () -> pessoaService.editar(criada.getId(), new PessoaDTO(null, "João Pedro", null)));
+        orcamento.statements("consultarTodos", 2, () -> pessoaService.consultarTodos(PageRequest.of(3, 20, Sort.by("nome"))));
+        orcamento.statements("consultarTodosPorCursor", 1, () ->
+                pessoaService.consultarTodosPorCursor(null, PageRequest.of(0, 20, Sort.by("dataDeNascimento"))));
+
+        // os endereços da página inteira vêm de uma só consulta, qualquer que seja o tamanho da página
+        for (int tamanho : new int[]{20, 500}) {
+            orcamento.statements("consultarTodos com enderecos", 3, () ->
+                    pessoaService.consultarTodos(PageRequest.of(1, tamanho, Sort.by("nome")), "enderecos"));
+            orcamento.statements("consultarTodos com principal", 3, () ->
+                    pessoaService.consultarTodos(PageRequest.of(1, tamanho, Sort.by("nome")), "principal"));
+        }
+
+        // duzentas pessoas fora do cache são carregadas em dois blocos de in
+        List<Long> ids = idsDaMassa.subList(0, 200);
+        pessoaCache.invalidar(ids);
+        orcamento.statements("consultarPorIds", 2, () -> pessoaService.consultarPorIds(ids));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 200})
+    @DisplayName("As operações de endereço devem executar o mesmo número de statements, qualquer que seja o número de endereços")
+    public void testeStatementsDeEndereco(int quantidadeDeEnderecos) {
+        Pessoa pessoa = pessoaRepository.save(new Pessoa(null, "Maria", LocalDate.of(1985, 3, 1)));
+        List<Endereco> enderecos = enderecoRepository.saveAll(IntStream.range(0, quantidadeDeEnderecos)
+                .mapToObj(i -> new Endereco(null, "Rua " + i, "58.100-200", i, "cidade", false, pessoa))
+                .toList());
+
+        pessoaCache.invalidar(List.of(pessoa.getId()));
+        orcamento.statements("criar endereço", 3, () -> enderecoService.criar(
+                new EnderecoDTO(null, "Rua nova", "58.100-200", 1, "cidade", null, pessoa.getId())));
+
+        enderecoCache.invalidar(pessoa.getId());
+        List<EnderecoDTO> lidos = orcamento.statements("buscarEnderecosDaPessoa", 2, () ->
+                enderecoService.buscarEnderecosDaPessoa(pessoa.getId()));
+        Assertions.assertEquals(quantidadeDeEnderecos + 1, lidos.size());
+
+        Long escolhido = enderecos.get(quantidadeDeEnderecos / 2).getId();
+        EnderecoDTO principal = orcamento.statements("escolherEnderecoPrincipal", 3, () ->
+                enderecoService.escolherEnderecoPrincipal(pessoa.getId(), escolhido));
+        Assertions.assertTrue(principal.getPrincipal());
+    }
+
+    @Test
+    @DisplayName("A exportação deve ler a base inteira com um único statement")
+    public void testeStatementsDaExportacao() {
+        orcamento.statements("exportarNdjson", 1, () -> exportar());
+    }
+
+    @Test
+    @DisplayName("As leituras e a troca de endereço principal devem respeitar seus orçamentos de tempo sobre a massa")
+    public void testeTempos() {
+        orcamento.tempo("consultarPorId", Duration.ofMillis(5), () -> {
+            Long id = idAleatorio();
+            pessoaCache.invalidar(List.of(id));
+            pessoaService.consultarPorId(id);
+        });
+        orcamento.tempo("consultarTodos", Duration.ofMillis(50), () ->
+                pessoaService.consultarTodos(PageRequest.of(ThreadLocalRandom.current().nextInt(PESSOAS_NA_MASSA / 20), 20, Sort.by("nome"))));
+        orcamento.tempo("consultarTodosPorCursor", Duration.ofMillis(10), () ->
+                pessoaService.consultarTodosPorCursor(null, PageRequest.of(0, 20, Sort.by("nome"))));
+        orcamento.tempo("buscarEnderecosDaPessoa", Duration.ofMillis(5), () -> {
+            Long id = idAleatorio();
+            enderecoCache.invalidar(id);
+            enderecoService.buscarEnderecosDaPessoa(id);
+        });
+        orcamento.tempo("escolherEnderecoPrincipal", Duration.ofMillis(25), () -> {
+            Long id = idAleatorio();
+            List<EnderecoDTO> enderecos = enderecoService.buscarEnderecosDaPessoa(id);
+            enderecoService.escolherEnderecoPrincipal(id, enderecos.get(ThreadLocalRandom.current().nextInt(enderecos.size())).getId());
+        });
+        orcamento.tempo("exportarNdjson", Duration.ofMillis(1500), this::exportar);
+    }
+
+
+    private Long idAleatorio() {
+        return idsDaMassa.get(ThreadLocalRandom.current().nextInt(idsDaMassa.size()));
+    }
+
+    private void exportar() {
+        try {
+            exportacaoService.exportarNdjson(OutputStream.nullOutputStream());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
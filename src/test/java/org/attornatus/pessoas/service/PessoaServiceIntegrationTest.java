@@ -0,0 +1,48 @@
+package org.attornatus.pessoas.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.dto.PessoaDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+@SpringBootTest
+public class PessoaServiceIntegrationTest {
+
+    @Autowired
+    private PessoaService pessoaService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+
+    @Test
+    @DisplayName("Quando a transação de uma edição é desfeita, o cache deve continuar servindo o nome gravado no db")
+    public void testeEditarComTransacaoDesfeita() {
+        PessoaDTO pessoa = pessoaService.criar(new PessoaDTO(null, "João", LocalDate.of(1990, 10, 5)));
+        Assertions.assertEquals("João", pessoaService.consultarPorId(pessoa.getId()).getNome());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            pessoaService.editar(pessoa.getId(), new PessoaDTO(null, "Maria", null));
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals("João", pessoaService.consultarPorId(pessoa.getId()).getNome());
+    }
+
+    @Test
+    @DisplayName("Quando a transação de uma criação é desfeita, a pessoa não deve ficar no cache")
+    public void testeCriarComTransacaoDesfeita() {
+        PessoaDTO criada = transactionTemplate.execute(status -> {
+            PessoaDTO pessoa = pessoaService.criar(new PessoaDTO(null, "Ana", LocalDate.of(1995, 3, 1)));
+            status.setRollbackOnly();
+            return pessoa;
+        });
+
+        Assertions.assertThrows(EntityNotFoundException.class, () -> pessoaService.consultarPorId(criada.getId()));
+    }
+}
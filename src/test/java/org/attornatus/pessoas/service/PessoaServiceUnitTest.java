@@ -1,8 +1,19 @@
 package org.attornatus.pessoas.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.attornatus.pessoas.cache.PessoaCache;
+import org.attornatus.pessoas.dto.EnderecoDTO;
+import org.attornatus.pessoas.dto.PaginaPorCursorDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecoPrincipalDTO;
+import org.attornatus.pessoas.dto.PessoaComEnderecosDTO;
 import org.attornatus.pessoas.dto.PessoaDTO;
+import org.attornatus.pessoas.dto.PessoasPorIdsDTO;
+import org.attornatus.pessoas.escrita.GravadorEmGrupo;
+import org.attornatus.pessoas.exception.BadRequestException;
+import org.attornatus.pessoas.indice.AgregadosDemograficos;
+import org.attornatus.pessoas.indice.IndiceDeNomes;
 import org.attornatus.pessoas.model.Pessoa;
+import org.attornatus.pessoas.repository.EnderecoRepository;
 import org.attornatus.pessoas.repository.PessoaRepository;
 import org.attornatus.pessoas.util.Parser;
 import org.junit.jupiter.api.Assertions;
@@ -12,13 +23,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +47,17 @@ public class PessoaServiceUnitTest {
 
     @Mock
     private PessoaRepository pessoaRepository;
+    @Mock
+    private EnderecoRepository enderecoRepository;
+    @Spy
+    private PessoaCache pessoaCache = new PessoaCache(100, Duration.ofMinutes(10), Duration.ofMinutes(10), Duration.ofSeconds(30));
+    @Spy
+    private IndiceDeNomes indiceDeNomes = new IndiceDeNomes();
+    @Spy
+    private AgregadosDemograficos agregadosDemograficos = new AgregadosDemograficos();
+
+    @Mock
+    private GravadorEmGrupo gravadorEmGrupo;
 
     @InjectMocks
     private PessoaService pessoaService;
@@ -41,6 +68,8 @@ public class PessoaServiceUnitTest {
         this.pessoa2 = new Pessoa(2L, "Maria", LocalDate.of(2000, 01, 25));
         this.pessoaDTO1 = Parser.pessoaParaDTO(pessoa1);
         this.pessoaDTO2 = Parser.pessoaParaDTO(pessoa2);
+        ReflectionTestUtils.setField(pessoaService, "tamanhoMaximoDaConsultaPorIds", 3);
+        ReflectionTestUtils.setField(pessoaService, "tamanhoDoIn", 2);
     }
 
 
@@ -88,6 +117,58 @@ public class PessoaServiceUnitTest {
         Mockito.verify(pessoaRepository, Mockito.times(1)).findById(1L);
     }
 
+    @Test
+    @DisplayName("Quando chama o método consultarTodos com expand, deve embutir os endereços da página com uma só consulta")
+    public void testeMetodoConsultarTodosComExpand() {
+        EnderecoDTO endereco1 = new EnderecoDTO(1L, "Rua 1", "58.100-200", 10, "cidade 1", true, 1L);
+        EnderecoDTO endereco2 = new EnderecoDTO(2L, "Rua 2", "58.100-201", 20, "cidade 2", false, 1L);
+        Pageable paginacao = PageRequest.of(0, 10);
+        Mockito.when(pessoaRepository.findAll(paginacao)).thenReturn(new PageImpl<>(List.of(pessoa1, pessoa2), paginacao, 2));
+        Mockito.when(enderecoRepository.buscarDTOsPorIdsPessoas(List.of(1L, 2L))).thenReturn(List.of(endereco1, endereco2));
+        Mockito.when(enderecoRepository.buscarPrincipaisPorIdsPessoas(List.of(1L, 2L))).thenReturn(List.of(endereco1));
+
+        Page<PessoaDTO> comEnderecos = pessoaService.consultarTodos(paginacao, "enderecos");
+        Page<PessoaDTO> comPrincipal = pessoaService.consultarTodos(paginacao, "principal");
+
+        Assertions.assertEquals(List.of(endereco1, endereco2), ((PessoaComEnderecosDTO) comEnderecos.getContent().get(0)).getEnderecos());
+        Assertions.assertEquals(List.of(), ((PessoaComEnderecosDTO) comEnderecos.getContent().get(1)).getEnderecos());
+        Assertions.assertEquals(endereco1, ((PessoaComEnderecoPrincipalDTO) comPrincipal.getContent().get(0)).getEnderecoPrincipal());
+        Assertions.assertNull(((PessoaComEnderecoPrincipalDTO) comPrincipal.getContent().get(1)).getEnderecoPrincipal());
+        Assertions.assertEquals(2, comPrincipal.getTotalElements());
+        Assertions.assertThrows(BadRequestException.class, () -> pessoaService.consultarTodos(paginacao, "pessoas"));
+
+        Mockito.verify(enderecoRepository, Mockito.times(1)).buscarDTOsPorIdsPessoas(Mockito.anyCollection());
+        Mockito.verify(enderecoRepository, Mockito.times(0)).findEnderecosByPessoa(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorIds, deve retornar as pessoas na ordem pedida e informar as que não existem")
+    public void testeMetodoConsultarPorIds() {
+        pessoaCache.atualizar(pessoaDTO2);
+        Mockito.when(pessoaRepository.buscarDTOsPorIds(Mockito.anyCollection())).thenAnswer(invocationOnMock -> {
+            Collection<Long> ids = invocationOnMock.getArgument(0);
+            return ids.contains(1L) ? List.of(pessoaDTO1) : List.of();
+        });
+
+        PessoasPorIdsDTO response = pessoaService.consultarPorIds(List.of(2L, 3L, 1L));
+
+        Assertions.assertEquals(List.of(pessoaDTO2, pessoaDTO1), response.getPessoas());
+        Assertions.assertEquals(List.of(3L), response.getNaoEncontrados());
+
+        // a pessoa que já estava no cache não vai ao banco, e as demais são divididas em blocos do tamanho do in
+        Mockito.verify(pessoaRepository, Mockito.times(1)).buscarDTOsPorIds(Mockito.anyCollection());
+        Mockito.verify(pessoaRepository, Mockito.times(0)).findById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorIds com mais ids que o permitido, deve lançar uma exceção")
+    public void testeMetodoConsultarPorIdsAcimaDoLimite() {
+        Assertions.assertThrows(BadRequestException.class, () -> pessoaService.consultarPorIds(List.of(1L, 2L, 3L, 4L)));
+        Assertions.assertThrows(BadRequestException.class, () -> pessoaService.consultarPorIds(List.of()));
+
+        Mockito.verify(pessoaRepository, Mockito.times(0)).buscarDTOsPorIds(Mockito.anyCollection());
+    }
+
     @Test
     @DisplayName("Quando chama o método consultarTodos, deve retornar todas as pessoas salvas")
     public void testeMetodoConsultarTodos() {
@@ -145,4 +226,122 @@ public class PessoaServiceUnitTest {
         Mockito.verify(pessoaRepository, Mockito.times(0)).save(Mockito.any());
     }
 
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorFaixaDeNascimento, deve continuar a faixa a partir do cursor")
+    public void testeMetodoConsultarPorFaixaDeNascimento() {
+        LocalDate inicio = LocalDate.of(1980, 1, 1);
+        LocalDate fim = LocalDate.of(2010, 12, 31);
+        Mockito.when(pessoaRepository.buscarPorFaixaDeNascimento(inicio, fim, null, null, 2)).thenReturn(List.of(pessoaDTO1, pessoaDTO2));
+        Mockito.when(pessoaRepository.buscarPorFaixaDeNascimento(inicio, fim, pessoaDTO1.getDataDeNascimento(), 1L, 2)).thenReturn(List.of(pessoaDTO2));
+
+        PaginaPorCursorDTO<PessoaDTO> primeira = pessoaService.consultarPorFaixaDeNascimento(inicio, fim, null, PageRequest.of(0, 1));
+        PaginaPorCursorDTO<PessoaDTO> segunda = pessoaService.consultarPorFaixaDeNascimento(inicio, fim, primeira.getProximo(), PageRequest.of(0, 1));
+
+        Assertions.assertEquals(List.of(pessoaDTO1), primeira.getConteudo());
+        Assertions.assertTrue(primeira.getTemProximo());
+        Assertions.assertEquals(List.of(pessoaDTO2), segunda.getConteudo());
+        Assertions.assertFalse(segunda.getTemProximo());
+        Assertions.assertThrows(BadRequestException.class, () -> pessoaService.consultarPorFaixaDeNascimento(fim, inicio, null, PageRequest.of(0, 1)));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método buscarPorNome, deve retornar na ordem do índice as pessoas carregadas do banco")
+    public void testeMetodoBuscarPorNome() {
+        indiceDeNomes.atualizar(1L, "João");
+        indiceDeNomes.atualizar(2L, "Maria Joana");
+        Mockito.when(pessoaRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(pessoa2, pessoa1));
+
+        Page<PessoaDTO> response = pessoaService.buscarPorNome("jo", PageRequest.of(0, 10));
+
+        Assertions.assertEquals(List.of(pessoaDTO1, pessoaDTO2), response.getContent());
+        Assertions.assertEquals(2, response.getTotalElements());
+        Assertions.assertThrows(BadRequestException.class, () -> pessoaService.buscarPorNome(" ", PageRequest.of(0, 10)));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarTodosPorCursor, deve retornar a página e o cursor da próxima")
+    public void testeMetodoConsultarTodosPorCursor() {
+        Mockito.when(pessoaRepository.buscarPorCursor("nome", true, null, null, 2)).thenReturn(List.of(pessoaDTO1, pessoaDTO2));
+        Mockito.when(pessoaRepository.buscarPorCursor("nome", true, "João", 1L, 2)).thenReturn(List.of(pessoaDTO2));
+
+        PaginaPorCursorDTO<PessoaDTO> primeira = pessoaService.consultarTodosPorCursor("", PageRequest.of(0, 1, Sort.by("nome")));
+
+        Assertions.assertEquals(List.of(pessoaDTO1), primeira.getConteudo());
+        Assertions.assertTrue(primeira.getTemProximo());
+        Assertions.assertNotNull(primeira.getProximo());
+
+        PaginaPorCursorDTO<PessoaDTO> segunda = pessoaService.consultarTodosPorCursor(primeira.getProximo(), PageRequest.of(0, 1, Sort.by("nome")));
+
+        Assertions.assertEquals(List.of(pessoaDTO2), segunda.getConteudo());
+        Assertions.assertFalse(segunda.getTemProximo());
+        Assertions.assertNull(segunda.getProximo());
+
+        // a paginação por cursor nunca deve recorrer ao offset nem à contagem do findAll paginado
+        Mockito.verify(pessoaRepository, Mockito.times(0)).findAll(Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarTodosPorCursor com expand, deve embutir o endereço principal e manter o cursor")
+    public void testeMetodoConsultarTodosPorCursorComExpand() {
+        EnderecoDTO endereco1 = new EnderecoDTO(1L, "Rua 1", "58.100-200", 10, "cidade 1", true, 1L);
+        Mockito.when(pessoaRepository.buscarPorCursor("nome", true, null, null, 2)).thenReturn(List.of(pessoaDTO1, pessoaDTO2));
+        Mockito.when(enderecoRepository.buscarPrincipaisPorIdsPessoas(List.of(1L))).thenReturn(List.of(endereco1));
+
+        PaginaPorCursorDTO<PessoaDTO> pagina = pessoaService.consultarTodosPorCursor("", PageRequest.of(0, 1, Sort.by("nome")), "principal");
+
+        Assertions.assertEquals(endereco1, ((PessoaComEnderecoPrincipalDTO) pagina.getConteudo().get(0)).getEnderecoPrincipal());
+        Assertions.assertTrue(pagina.getTemProximo());
+        Assertions.assertEquals(pessoaService.consultarTodosPorCursor("", PageRequest.of(0, 1, Sort.by("nome"))).getProximo(), pagina.getProximo());
+        Assertions.assertThrows(BadRequestException.class,
+                () -> pessoaService.consultarTodosPorCursor("", PageRequest.of(0, 1, Sort.by("nome")), "pessoas"));
+    }
+
+    @Test
+    @DisplayName("Quando chama o método consultarTodosPorCursor com um cursor de outra ordenação, deve lançar uma exceção")
+    public void testeMetodoConsultarTodosPorCursorComOrdenacaoDiferente() {
+        Mockito.when(pessoaRepository.buscarPorCursor(Mockito.anyString(), Mockito.anyBoolean(), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenReturn(List.of(pessoaDTO1, pessoaDTO2));
+
+        String proximo = pessoaService.consultarTodosPorCursor("", PageRequest.of(0, 1, Sort.by("nome"))).getProximo();
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> pessoaService.consultarTodosPorCursor(proximo, PageRequest.of(0, 1, Sort.by("dataDeNascimento"))));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> pessoaService.consultarTodosPorCursor("", PageRequest.of(0, 1, Sort.by("cidade"))));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> pessoaService.consultarTodosPorCursor("cursor-invalido", PageRequest.of(0, 1)));
+    }
+
+
+    @Test
+    @DisplayName("Quando chama o método consultarPorId mais de uma vez, deve buscar a pessoa no banco de dados só na primeira")
+    public void testeMetodoConsultarPorIdComCache() {
+        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
+        Mockito.when(pessoaRepository.findById(10L)).thenReturn(Optional.empty());
+
+        Assertions.assertEquals(pessoaDTO1, pessoaService.consultarPorId(1L));
+        Assertions.assertEquals(pessoaDTO1, pessoaService.consultarPorId(1L));
+        Assertions.assertThrows(EntityNotFoundException.class, () -> pessoaService.consultarPorId(10L));
+        Assertions.assertThrows(EntityNotFoundException.class, () -> pessoaService.consultarPorId(10L));
+
+        // tanto a pessoa encontrada quanto o id inexistente ficam no cache
+        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(1L);
+        Mockito.verify(pessoaRepository, Mockito.times(1)).findById(10L);
+    }
+
+    @Test
+    @DisplayName("Quando chama o método editar, a próxima consulta deve retornar a pessoa alterada sem ir ao banco de dados")
+    public void testeMetodoEditarAtualizaCache() {
+        Mockito.when(pessoaRepository.findById(1L)).thenReturn(Optional.of(pessoa1));
+        Mockito.when(pessoaRepository.save(Mockito.any(Pessoa.class))).thenAnswer(invocationOnMock -> invocationOnMock.getArguments()[0]);
+
+        pessoaService.consultarPorId(1L);
+        pessoaService.editar(1L, new PessoaDTO(null, "Pedro", null));
+        PessoaDTO response = pessoaService.consultarPorId(1L);
+
+        Assertions.assertEquals("Pedro", response.getNome());
+        Mockito.verify(pessoaRepository, Mockito.times(2)).findById(1L);
+    }
+
 }